@@ -0,0 +1,100 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dittmarsteiner.cli.BulkResolver;
+import com.github.dittmarsteiner.cli.OptionSchema;
+
+/**
+ * Resolves 100,000 argument vectors with a {@link BulkResolver} into
+ * columns, by number of threads, to see how the throughput scales with the
+ * cores.
+ * 
+ * <pre>
+ * $ java -jar target/benchmarks.jar BulkBenchmark -p parallelism=1,2,4,8
+ * </pre>
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+
+    private static final int VECTORS = 100000;
+
+    @Param({ "1", "2", "4" })
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private BulkResolver bulk;
+    private List<String[]> vectors;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        OptionSchema schema = OptionSchema.builder()
+                .option(8080, "PORT", 'p')
+                .option(0L, "SIZE", 's')
+                .option(0.5, "RATIO", 'r')
+                .option(false, "TEST", 't')
+                .option("none", "NAME", 'n')
+                .build();
+
+        pool = new ForkJoinPool(parallelism);
+        bulk = new BulkResolver(schema, pool);
+        vectors = new ArrayList<>(VECTORS);
+        for (int i = 0; i < VECTORS; i++) {
+            vectors.add(new String[] { "--port", "" + (i % 65536), "-ts",
+                    "" + i, "--name", "job-" + i, "--ratio", "0.25",
+                    "shard-" + i });
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public BulkResolver.Columns columns() {
+        return bulk.columns(vectors);
+    }
+}
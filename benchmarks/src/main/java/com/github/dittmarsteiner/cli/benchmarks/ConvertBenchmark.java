@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dittmarsteiner.cli.ConversionCache;
+import com.github.dittmarsteiner.cli.Converters;
+import com.github.dittmarsteiner.cli.OptionsResolver;
+import com.github.dittmarsteiner.cli.ParsedArgs;
+
+/**
+ * Resolves one option of each {@link Type} from a named program argument,
+ * generic and, where there is one, with the primitive resolver, without and
+ * with a {@link ConversionCache}.
+ * 
+ * <pre>
+ * $ java -jar target/benchmarks.jar ConvertBenchmark -prof gc
+ * </pre>
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertBenchmark {
+
+    /**
+     * The type of the option and its value.
+     */
+    public enum Type {
+        INT(0, "8080"),
+        LONG(0L, "8080"),
+        DOUBLE(0d, "0.5"),
+        FLOAT(0f, "0.5"),
+        BOOLEAN(false, null),
+        STRING("", "localhost"),
+        DECIMAL(BigDecimal.ZERO, "1.10"),
+        CUSTOM(new Host("localhost"), "example.com");
+
+        final Object defaultValue;
+        final String value;
+
+        Type(Object defaultValue, String value) {
+            this.defaultValue = defaultValue;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A custom type with a <code>String</code> constructor.
+     */
+    public static class Host {
+        private final String name;
+
+        public Host(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    @Param
+    public Type type;
+
+    /** with a {@link ConversionCache} for the type */
+    @Param({ "false", "true" })
+    public boolean cached;
+
+    private ParsedArgs args;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        args = type.value != null ? ParsedArgs.parse("--bench_value",
+                type.value) : ParsedArgs.parse("--bench_value");
+        if (cached) {
+            Converters.cache(type.defaultValue.getClass(), 1024);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        Converters.uncache(type.defaultValue.getClass());
+    }
+
+    @Benchmark
+    public Object resolve() {
+        return OptionsResolver.resolve(type.defaultValue, "BENCH_VALUE", 'v',
+                args);
+    }
+
+    @Benchmark
+    public void resolvePrimitive(Blackhole bh) {
+        switch (type) {
+        case INT:
+            bh.consume(OptionsResolver.resolveInt(0, "BENCH_VALUE", 'v', args));
+            break;
+        case LONG:
+            bh.consume(OptionsResolver.resolveLong(0L, "BENCH_VALUE", 'v',
+                    args));
+            break;
+        case DOUBLE:
+            bh.consume(OptionsResolver.resolveDouble(0d, "BENCH_VALUE", 'v',
+                    args));
+            break;
+        case BOOLEAN:
+            bh.consume(OptionsResolver.resolveBoolean(false, "BENCH_VALUE",
+                    'v', args));
+            break;
+        default:
+            bh.consume(resolve());
+            break;
+        }
+    }
+}
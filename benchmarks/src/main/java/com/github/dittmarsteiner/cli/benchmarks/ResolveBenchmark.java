@@ -0,0 +1,252 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.dittmarsteiner.cli.OptionSchema;
+import com.github.dittmarsteiner.cli.OptionsResolver;
+import com.github.dittmarsteiner.cli.ParsedArgs;
+
+/**
+ * Resolves <code>optionCount</code> options, all found in the same
+ * {@link Source}, against <code>argsLength</code> program arguments. The
+ * arguments of the options come last, after unrelated ones.
+ * 
+ * <pre>
+ * $ java -jar target/benchmarks.jar ResolveBenchmark -prof gc
+ * $ java -jar target/benchmarks.jar ResolveBenchmark -p source=FLAG -p argsLength=8
+ * </pre>
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResolveBenchmark {
+
+    /**
+     * Where the options are found.
+     */
+    public enum Source {
+        /**
+         * <code>System.getenv(key)</code>, as <code>String</code>, at most as
+         * many options as there are env variables
+         */
+        ENV,
+        /** <code>System.getProperty(key)</code>, as <code>int</code> */
+        PROPERTY,
+        /** <code>--key 1</code>, as <code>int</code> */
+        NAMED,
+        /** <code>-k 1</code>, as <code>int</code> */
+        FLAG,
+        /** <code>-tk 1</code>, as <code>int</code> */
+        CLUSTER,
+        /** <code>-abc...</code>, as <code>boolean</code> */
+        BOOLEAN,
+        /** nowhere, the <code>int</code> default */
+        MISS
+    }
+
+    @Param
+    public Source source;
+
+    @Param({ "8", "128", "2048" })
+    public int argsLength;
+
+    @Param({ "1", "16", "128" })
+    public int optionCount;
+
+    private String[] keys;
+    private Character[] flags;
+    private Object defaultValue;
+    private String[] args;
+    /** equal to <code>args</code>, but other instances */
+    private String[] otherArgs;
+    private boolean other;
+    private ParsedArgs parsed;
+    private OptionSchema schema;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> env = new ArrayList<>(System.getenv().keySet());
+        // distinct keys only
+        int count = source == Source.ENV ? Math.min(optionCount, env.size())
+                : optionCount;
+
+        keys = new String[count];
+        flags = new Character[count];
+        defaultValue = source == Source.ENV ? "" : source == Source.BOOLEAN
+                ? Boolean.FALSE : Integer.valueOf(0);
+
+        List<Character> letters = letters(count + 1);
+        char t = letters.get(count);
+        List<String> options = new ArrayList<>();
+        StringBuilder cluster = new StringBuilder("-");
+
+        for (int i = 0; i < count; i++) {
+            keys[i] = source == Source.ENV ? env.get(i) : "BENCH_OPTION_" + i;
+            flags[i] = letters.get(i);
+
+            switch (source) {
+            case PROPERTY:
+                System.setProperty(keys[i], Integer.toString(i));
+                break;
+            case NAMED:
+                options.add("--" + keys[i].toLowerCase());
+                options.add(Integer.toString(i));
+                break;
+            case FLAG:
+                options.add("-" + flags[i]);
+                options.add(Integer.toString(i));
+                break;
+            case CLUSTER:
+                options.add("-" + t + flags[i]);
+                options.add(Integer.toString(i));
+                break;
+            case BOOLEAN:
+                cluster.append(flags[i]);
+                break;
+            default:
+                break;
+            }
+        }
+        if (source == Source.BOOLEAN) {
+            options.add(cluster.toString());
+        }
+
+        List<String> all = new ArrayList<>();
+        for (int i = 0; all.size() < argsLength - options.size(); i++) {
+            all.add(i % 2 == 0 ? "--unrelated" + i : "value" + i);
+        }
+        all.addAll(options);
+        args = all.toArray(new String[all.size()]);
+        otherArgs = new String[args.length];
+        for (int i = 0; i < args.length; i++) {
+            otherArgs[i] = new String(args[i]);
+        }
+        parsed = ParsedArgs.parse(args);
+
+        OptionSchema.Builder builder = OptionSchema.builder();
+        for (int i = 0; i < count; i++) {
+            builder.option(defaultValue, keys[i], flags[i]);
+        }
+        schema = builder.build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (source == Source.PROPERTY) {
+            for (String key : keys) {
+                System.clearProperty(key);
+            }
+        }
+    }
+
+    /**
+     * <code>resolve(defaultValue, key, flag, args)</code> with a
+     * <code>String[]</code> for each option. The first option parses the
+     * arguments, the others reuse the last parsed ones.
+     */
+    @Benchmark
+    public void resolveArgs(Blackhole bh) {
+        String[] args = nextArgs();
+        for (int i = 0; i < keys.length; i++) {
+            bh.consume(OptionsResolver.resolve(defaultValue, keys[i],
+                    flags[i], args));
+        }
+    }
+
+    /**
+     * <code>resolve(defaultValue, key, flag, parsed)</code> with
+     * {@link ParsedArgs} parsed once
+     */
+    @Benchmark
+    public void resolveParsed(Blackhole bh) {
+        for (int i = 0; i < keys.length; i++) {
+            bh.consume(OptionsResolver.resolve(defaultValue, keys[i],
+                    flags[i], parsed));
+        }
+    }
+
+    /**
+     * <code>ParsedArgs.parse(args)</code> and then
+     * <code>resolve(defaultValue, key, flag, parsed)</code>
+     */
+    @Benchmark
+    public void parseAndResolve(Blackhole bh) {
+        ParsedArgs parsed = ParsedArgs.parse(nextArgs());
+        for (int i = 0; i < keys.length; i++) {
+            bh.consume(OptionsResolver.resolve(defaultValue, keys[i],
+                    flags[i], parsed));
+        }
+    }
+
+    /**
+     * {@link OptionSchema#resolve(String...)} for all options at once
+     */
+    @Benchmark
+    public Object resolveSchema() {
+        return schema.resolve(nextArgs());
+    }
+
+    /**
+     * @return <code>args</code> and equal, but other <code>String</code>s in
+     *         turn, so {@link ParsedArgs#parse(String...)} parses them again
+     *         per invocation instead of reusing the last parsed ones
+     */
+    private String[] nextArgs() {
+        return (other = !other) ? otherArgs : args;
+    }
+
+    /**
+     * @return <code>count</code> distinct letters and digits, which are valid
+     *         flags
+     */
+    static List<Character> letters(int count) {
+        List<Character> letters = new ArrayList<>(count);
+        for (char c = '0'; letters.size() < count; c++) {
+            if (Character.isLetter(c) || Character.isDigit(c)) {
+                letters.add(c);
+            }
+        }
+
+        return letters;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.dittmarsteiner.cli.OptionsResolver;
+
+/**
+ * Resolves options from 1 to N platform or virtual threads at once, to see
+ * how the throughput scales. Each thread resolves its own arguments and a
+ * System property, which another thread keeps changing between two values;
+ * any other value, e.g. another thread's argument, fails the benchmark.
+ * 
+ * <pre>
+ * $ java -jar target/benchmarks.jar ThreadsBenchmark -p threads=1,2,4,8,64
+ * </pre>
+ * 
+ * Virtual threads need Java 21, before that run with
+ * <code>-p kind=platform</code>. To resolve from JMH's own threads instead,
+ * run e.g. <code>ResolveBenchmark -t 8</code>.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreadsBenchmark {
+
+    private static final int OPERATIONS = 100000;
+
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    @Param({ "platform", "virtual" })
+    public String kind;
+
+    private ExecutorService executor;
+    private List<Callable<Long>> tasks;
+    private volatile boolean running;
+    private Thread writer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        if ("virtual".equals(kind)) {
+            executor = (ExecutorService) Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        else {
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        tasks = new ArrayList<>(threads);
+        final int rounds = OPERATIONS / threads;
+        for (int i = 0; i < threads; i++) {
+            final String[] args = { "--port", "" + i, "-n", "job-" + i };
+            final int port = i;
+            final String name = args[3];
+            tasks.add(() -> {
+                long errors = 0;
+                for (int r = 0; r < rounds; r++) {
+                    if (OptionsResolver.resolveInt(8080, "PORT", 'p',
+                            args) != port) {
+                        errors++;
+                    }
+                    if (!name.equals(OptionsResolver.resolve("", "NAME", 'n',
+                            args))) {
+                        errors++;
+                    }
+                    String mode = OptionsResolver.resolve("", "BENCH_MODE",
+                            'm', args);
+                    if (!mode.equals("fast") && !mode.equals("careful")) {
+                        errors++;
+                    }
+                }
+                return errors;
+            });
+        }
+
+        System.setProperty("BENCH_MODE", "fast");
+        running = true;
+        writer = new Thread(() -> {
+            for (boolean flip = false; running; flip = !flip) {
+                System.setProperty("BENCH_MODE", flip ? "fast" : "careful");
+                Thread.yield();
+            }
+        });
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        running = false;
+        writer.join();
+        executor.shutdown();
+        System.clearProperty("BENCH_MODE");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPERATIONS * 3)
+    public long resolve() throws Exception {
+        long errors = 0;
+        for (Future<Long> result : executor.invokeAll(tasks)) {
+            errors += result.get();
+        }
+        if (errors != 0) {
+            throw new IllegalStateException(errors + " wrong values");
+        }
+
+        return errors;
+    }
+}
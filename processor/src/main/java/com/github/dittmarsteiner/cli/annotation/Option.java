@@ -0,0 +1,65 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a field to be resolved by <code>OptionsResolver</code>.
+ * <p>
+ * For each class with such fields, the <code>OptionProcessor</code>
+ * generates a <code><i>&lt;Class&gt;</i>Binder</code> in the same package at
+ * compile time. Its <code>bind(target, args)</code> resolves every annotated
+ * field, using the current value of the field as default:
+ * 
+ * <pre>
+ * public class Config {
+ *     &#64;Option(key = "PORT", flag = 'p')
+ *     int port = 8080;
+ * }
+ * 
+ * Config config = ConfigBinder.bind(new Config(), args);
+ * </pre>
+ * 
+ * The fields must not be <code>private</code>, <code>final</code> or
+ * <code>static</code>.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Option {
+
+    /**
+     * @return Case-sensitive for System env or System property, but made
+     *         lower case for program argument like <code>args[]</code>
+     */
+    String key();
+
+    /**
+     * @return a single character, case sensitive, or <code>'\0'</code> for
+     *         none
+     */
+    char flag() default '\0';
+}
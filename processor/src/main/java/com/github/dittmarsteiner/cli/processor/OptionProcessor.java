@@ -0,0 +1,292 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+
+import com.github.dittmarsteiner.cli.annotation.Option;
+
+/**
+ * Generates a <code><i>&lt;Class&gt;</i>Binder</code> for each class with
+ * fields annotated with {@link Option}.
+ * <p>
+ * The binder calls <code>OptionsResolver</code> directly for each field:
+ * <code>resolveInt</code> etc. for primitives, <code>Type::valueOf</code> for
+ * enums and <code>Type::new</code> for types with a public
+ * <code>String</code> constructor without checked exceptions, so no
+ * reflection is left at runtime. Both report failures like the
+ * <code>String</code> constructor, see <code>Converters.wrap(...)</code>. Any
+ * other type is resolved by its registered <code>Converter</code>.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class OptionProcessor extends AbstractProcessor {
+
+    private static final Set<String> BUILT_IN = new LinkedHashSet<>();
+    static {
+        Collections.addAll(BUILT_IN, "java.lang.String", "java.lang.Integer",
+                "java.lang.Long", "java.lang.Double", "java.lang.Float",
+                "java.lang.Boolean");
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(Option.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations,
+            RoundEnvironment roundEnv) {
+        Set<TypeElement> types = new LinkedHashSet<>();
+        for (Element field : roundEnv.getElementsAnnotatedWith(Option.class)) {
+            if (check(field)) {
+                types.add((TypeElement) field.getEnclosingElement());
+            }
+        }
+
+        for (TypeElement type : types) {
+            try {
+                write(type);
+            }
+            catch (IOException e) {
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.ERROR, String.format(
+                                "Could not write binder: %s", e.getMessage()),
+                        type);
+            }
+        }
+
+        return true;
+    }
+
+    private boolean check(Element field) {
+        Set<Modifier> modifiers = field.getModifiers();
+        String error = null;
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            error = "@Option field must not be private";
+        }
+        else if (modifiers.contains(Modifier.FINAL)) {
+            error = "@Option field must not be final";
+        }
+        else if (modifiers.contains(Modifier.STATIC)) {
+            error = "@Option field must not be static";
+        }
+        else if (field.getEnclosingElement().getModifiers()
+                .contains(Modifier.PRIVATE)) {
+            error = "@Option field must not be in a private class";
+        }
+        else if (call(field.asType()) == null) {
+            error = String.format("@Option field of type %s is not supported",
+                    field.asType());
+        }
+
+        if (error != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    error, field);
+            return false;
+        }
+
+        return true;
+    }
+
+    private void write(TypeElement type) throws IOException {
+        Elements elements = processingEnv.getElementUtils();
+        String pkg = elements.getPackageOf(type).getQualifiedName()
+                .toString();
+        String target = type.getQualifiedName().toString();
+        String binder = binderName(type);
+
+        Writer writer = processingEnv.getFiler().createSourceFile(
+                pkg.isEmpty() ? binder : pkg + "." + binder, type)
+                .openWriter();
+        try (PrintWriter out = new PrintWriter(writer)) {
+            out.println("// Generated by " + getClass().getName()
+                    + ", do not edit");
+            if (!pkg.isEmpty()) {
+                out.println("package " + pkg + ";");
+                out.println();
+            }
+            out.println("import com.github.dittmarsteiner.cli.Converters;");
+            out.println("import com.github.dittmarsteiner.cli.OptionsResolver;");
+            out.println("import com.github.dittmarsteiner.cli.ParsedArgs;");
+            out.println();
+            out.println("/**");
+            out.println(" * Binds the options of {@link " + target + "}.");
+            out.println(" */");
+            out.println("public final class " + binder + " {");
+            out.println();
+            out.println("    private " + binder + "() {");
+            out.println("    }");
+            out.println();
+            out.println("    public static " + target + " bind(" + target
+                    + " target, String... args) {");
+            out.println("        return bind(target, ParsedArgs.parse(args));");
+            out.println("    }");
+            out.println();
+            out.println("    public static " + target + " bind(" + target
+                    + " target, ParsedArgs args) {");
+            for (VariableElement field : ElementFilter.fieldsIn(type
+                    .getEnclosedElements())) {
+                Option option = field.getAnnotation(Option.class);
+                if (option == null) {
+                    continue;
+                }
+
+                String name = field.getSimpleName().toString();
+                String flag = option.flag() == '\0' ? "null" : elements
+                        .getConstantExpression(option.flag());
+                out.println(String.format(
+                        "        target.%s = OptionsResolver.%starget.%s, %s, %s, args);",
+                        name, call(field.asType()), name,
+                        elements.getConstantExpression(option.key()), flag));
+            }
+            out.println("        return target;");
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * @return the resolver call up to the default value, e.g.
+     *         <code>resolveInt(</code> or <code>resolve(Float.class, </code>,
+     *         or <code>null</code> if not supported
+     */
+    private String call(TypeMirror type) {
+        switch (type.getKind()) {
+        case INT:
+            return "resolveInt(";
+        case LONG:
+            return "resolveLong(";
+        case DOUBLE:
+            return "resolveDouble(";
+        case BOOLEAN:
+            return "resolveBoolean(";
+        case FLOAT:
+            return "resolve(Float.class, ";
+        case SHORT:
+            return "resolve(Short::valueOf, ";
+        case BYTE:
+            return "resolve(Byte::valueOf, ";
+        case DECLARED:
+            break;
+        default:
+            return null;
+        }
+
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String name = element.getQualifiedName().toString();
+        if (!((DeclaredType) type).getTypeArguments().isEmpty()) {
+            return null;
+        }
+        if (BUILT_IN.contains(name)) {
+            return "resolve(" + name + ".class, ";
+        }
+        if (element.getKind() == ElementKind.ENUM) {
+            return "resolve(Converters.wrap(" + name + ".class, " + name
+                    + "::valueOf), ";
+        }
+        if (hasStringConstructor(element)) {
+            return "resolve(Converters.wrap(" + name + ".class, " + name
+                    + "::new), ";
+        }
+
+        return "resolve(" + name + ".class, ";
+    }
+
+    private boolean hasStringConstructor(TypeElement element) {
+        if (element.getModifiers().contains(Modifier.ABSTRACT)
+                || (element.getNestingKind() == NestingKind.MEMBER
+                && !element.getModifiers().contains(Modifier.STATIC))) {
+            return false;
+        }
+
+        for (ExecutableElement constructor : ElementFilter
+                .constructorsIn(element.getEnclosedElements())) {
+            if (constructor.getModifiers().contains(Modifier.PUBLIC)
+                    && constructor.getParameters().size() == 1
+                    && constructor.getParameters().get(0).asType()
+                            .toString().equals("java.lang.String")) {
+                // Type::new cannot throw checked exceptions
+                return !throwsChecked(constructor);
+            }
+        }
+
+        return false;
+    }
+
+    private boolean throwsChecked(ExecutableElement executable) {
+        Types types = processingEnv.getTypeUtils();
+        Elements elements = processingEnv.getElementUtils();
+        TypeMirror runtime = elements.getTypeElement(
+                "java.lang.RuntimeException").asType();
+        TypeMirror error = elements.getTypeElement("java.lang.Error")
+                .asType();
+        for (TypeMirror thrown : executable.getThrownTypes()) {
+            if (!types.isSubtype(thrown, runtime)
+                    && !types.isSubtype(thrown, error)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return e.g. <code>ConfigBinder</code> or
+     *         <code>Outer_ConfigBinder</code> for a nested class
+     */
+    private static String binderName(TypeElement type) {
+        String name = type.getSimpleName().toString();
+        Element enclosing = type.getEnclosingElement();
+        while (enclosing.getKind().isClass()
+                || enclosing.getKind().isInterface()) {
+            name = enclosing.getSimpleName() + "_" + name;
+            enclosing = enclosing.getEnclosingElement();
+        }
+
+        return name + "Binder";
+    }
+}
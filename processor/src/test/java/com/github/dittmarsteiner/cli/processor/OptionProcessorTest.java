@@ -0,0 +1,192 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli.processor;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.URL;
+import java.math.BigDecimal;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
+/**
+ * @see OptionProcessor
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class OptionProcessorTest {
+
+    private static final String CONFIG = String.join("\n",
+            "package com.example;",
+            "import com.github.dittmarsteiner.cli.annotation.Option;",
+            "public class Config {",
+            "    public enum Mode { FAST, SAFE }",
+            "    @Option(key = \"PROC_PORT\", flag = 'p') int port = 8080;",
+            "    @Option(key = \"PROC_SIZE\") long size = 1;",
+            "    @Option(key = \"PROC_RATIO\") double ratio = 0.5;",
+            "    @Option(key = \"PROC_TEST\", flag = 't') boolean test;",
+            "    @Option(key = \"PROC_SCALE\") float scale = 1f;",
+            "    @Option(key = \"PROC_SMALL\") short small = 1;",
+            "    @Option(key = \"PROC_NAME\", flag = 'n') String name;",
+            "    @Option(key = \"PROC_COUNT\") Integer count;",
+            "    @Option(key = \"PROC_MODE\", flag = 'm') Mode mode = Mode.SAFE;",
+            "    @Option(key = \"PROC_PRICE\") java.math.BigDecimal price;",
+            "    @Option(key = \"PROC_ENDPOINT\") java.net.URI endpoint;",
+            "    public static class Nested {",
+            "        @Option(key = \"PROC_LEVEL\", flag = 'l') public int level;",
+            "    }",
+            "}");
+
+    @Test
+    public void testBinder() throws Exception {
+        Path dir = Files.createTempDirectory("processor");
+        List<Diagnostic<? extends JavaFileObject>> errors = compile(dir,
+                CONFIG);
+        assertEquals(errors.toString(), 0, errors.size());
+
+        try (URLClassLoader loader = new URLClassLoader(
+                new URL[] { dir.toUri().toURL() }, getClass()
+                        .getClassLoader())) {
+            Class<?> type = loader.loadClass("com.example.Config");
+            Class<?> binder = loader.loadClass("com.example.ConfigBinder");
+            Method bind = binder.getMethod("bind", type, String[].class);
+
+            Object config = bind.invoke(null, type.newInstance(),
+                    new String[] { "-tp", "80", "--proc_size", "1000", "-n",
+                            "name", "--proc_count", "3", "-m", "FAST",
+                            "--proc_price", "1.10", "--proc_scale", "2",
+                            "--proc_small", "7", "--proc_endpoint",
+                            "http://localhost:80/" });
+            assertEquals(80, field(config, "port"));
+            assertEquals(1000L, field(config, "size"));
+            assertEquals(0.5d, field(config, "ratio")); // default
+            assertEquals(true, field(config, "test"));
+            assertEquals(2f, field(config, "scale"));
+            assertEquals((short) 7, field(config, "small"));
+            assertEquals("name", field(config, "name"));
+            assertEquals(3, field(config, "count"));
+            assertEquals("FAST", field(config, "mode").toString());
+            assertEquals(new BigDecimal("1.10"), field(config,
+                    "price"));
+            assertEquals(new URI("http://localhost:80/"), field(config,
+                    "endpoint"));
+
+            config = bind.invoke(null, type.newInstance(), new String[0]);
+            assertEquals(8080, field(config, "port"));
+            assertEquals(false, field(config, "test"));
+            assertNull(field(config, "name"));
+            assertEquals("SAFE", field(config, "mode").toString());
+
+            // the same exceptions as resolve(Type.class, ...)
+            for (String[] args : new String[][] { { "-m", "SLOW" },
+                    { "--proc_price", "cheap" },
+                    { "--proc_endpoint", "a b" } }) {
+                try {
+                    bind.invoke(null, type.newInstance(), args);
+                    fail("Expected StringConstructorException for " + args[1]);
+                }
+                catch (InvocationTargetException e) {
+                    assertTrue(e.getCause().toString(), e
+                            .getCause() instanceof StringConstructorException);
+                }
+            }
+
+            Class<?> nested = loader.loadClass("com.example.Config$Nested");
+            Object level = loader.loadClass("com.example.Config_NestedBinder")
+                    .getMethod("bind", nested, String[].class)
+                    .invoke(null, nested.newInstance(),
+                            new String[] { "-l", "3" });
+            assertEquals(3, field(level, "level"));
+        }
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        Path dir = Files.createTempDirectory("processor");
+        List<Diagnostic<? extends JavaFileObject>> errors = compile(dir,
+                String.join("\n",
+                        "package com.example;",
+                        "import com.github.dittmarsteiner.cli.annotation.Option;",
+                        "public class Config {",
+                        "    @Option(key = \"A\") private int a;",
+                        "    @Option(key = \"B\") final int b = 1;",
+                        "    @Option(key = \"C\") static int c;",
+                        "    @Option(key = \"D\") int[] d;",
+                        "}"));
+        assertEquals(errors.toString(), 4, errors.size());
+    }
+
+    private static Object field(Object target, String name) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(target);
+    }
+
+    private static List<Diagnostic<? extends JavaFileObject>> compile(
+            Path dir, String source) throws IOException {
+        Path file = dir.resolve("com/example/Config.java");
+        Files.createDirectories(file.getParent());
+        Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics =
+                new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = compiler.getStandardFileManager(
+                diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, files,
+                    diagnostics, Arrays.asList("-d", dir.toString(),
+                            "-s", dir.toString(), "-classpath",
+                            System.getProperty("java.class.path")), null,
+                    files.getJavaFileObjects(file.toFile()));
+            task.setProcessors(Collections.singletonList(
+                    new OptionProcessor()));
+            task.call();
+        }
+
+        List<Diagnostic<? extends JavaFileObject>> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> d : diagnostics
+                .getDiagnostics()) {
+            if (d.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(d);
+            }
+        }
+        return errors;
+    }
+}
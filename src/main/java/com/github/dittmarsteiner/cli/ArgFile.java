@@ -0,0 +1,181 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the arguments of an <code>@argfile</code> into a
+ * {@link ParsedArgs.Indexer}, see {@link ParsedArgs#expand(String...)}.
+ * Only one chunk of the file and the current argument are held in memory.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+final class ArgFile {
+
+    private static final int CHUNK = 8192;
+
+    private final ParsedArgs.Indexer indexer;
+    private final StringBuilder token = new StringBuilder();
+    private boolean inToken;
+    private boolean comment;
+    private boolean escape;
+    private char quote;
+
+    private ArgFile(ParsedArgs.Indexer indexer) {
+        this.indexer = indexer;
+    }
+
+    /**
+     * Adds the arguments in <code>file</code> to <code>indexer</code>.
+     * 
+     * @throws IOException
+     *             if the file cannot be read, is no UTF-8 or a quote is not
+     *             closed
+     */
+    static void read(Path file, ParsedArgs.Indexer indexer)
+            throws IOException {
+        ArgFile tokenizer = new ArgFile(indexer);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        ByteBuffer bytes = ByteBuffer.allocate(CHUNK);
+        CharBuffer chars = CharBuffer.allocate(CHUNK);
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (!eof) {
+                eof = channel.read(bytes) < 0;
+                // casts for Java 8, where flip() and clear() return Buffer
+                ((Buffer) bytes).flip();
+
+                CoderResult result;
+                do {
+                    result = decoder.decode(bytes, chars, eof);
+                    if (result.isError()) {
+                        result.throwException();
+                    }
+                    ((Buffer) chars).flip();
+                    tokenizer.accept(chars);
+                    ((Buffer) chars).clear();
+                }
+                while (result.isOverflow());
+
+                bytes.compact();
+            }
+        }
+
+        if (tokenizer.quote != 0) {
+            throw new IOException(String.format("Missing %s in %s",
+                    tokenizer.quote, file));
+        }
+        tokenizer.end();
+    }
+
+    /**
+     * Adds the arguments in <code>line</code> to <code>indexer</code>.
+     * 
+     * @throws IllegalArgumentException
+     *             if a quote is not closed
+     */
+    static void split(CharSequence line, ParsedArgs.Indexer indexer) {
+        ArgFile tokenizer = new ArgFile(indexer);
+        tokenizer.accept(CharBuffer.wrap(line));
+        if (tokenizer.quote != 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Missing %s in %s", tokenizer.quote, line));
+        }
+        tokenizer.end();
+    }
+
+    private void accept(CharBuffer chars) {
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (comment) {
+                comment = c != '\n' && c != '\r';
+            }
+            else if (escape) {
+                escape = false;
+                token.append(unescape(c));
+            }
+            else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                else if (c == '\\') {
+                    escape = true;
+                }
+                else {
+                    token.append(c);
+                }
+            }
+            else if (Character.isWhitespace(c)) {
+                end();
+            }
+            else if (c == '#' && !inToken) {
+                comment = true;
+            }
+            else {
+                inToken = true;
+                if (c == '"' || c == '\'') {
+                    quote = c;
+                }
+                else {
+                    token.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the control character of <code>\n</code>, <code>\t</code>,
+     *         <code>\r</code> and <code>\f</code> like the
+     *         <code>java</code> launcher, <code>c</code> itself otherwise
+     */
+    private static char unescape(char c) {
+        switch (c) {
+        case 'n':
+            return '\n';
+        case 't':
+            return '\t';
+        case 'r':
+            return '\r';
+        case 'f':
+            return '\f';
+        default:
+            return c;
+        }
+    }
+
+    private void end() {
+        if (inToken) {
+            indexer.add(token.toString());
+            token.setLength(0);
+            inToken = false;
+        }
+    }
+}
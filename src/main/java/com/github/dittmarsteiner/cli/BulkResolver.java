@@ -0,0 +1,421 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Resolves the options of an {@link OptionSchema} for many argument vectors
+ * in parallel, e.g. to replay logged job submissions:
+ * 
+ * <pre>
+ * BulkResolver bulk = new BulkResolver(schema);
+ * BulkResolver.Columns columns = bulk.columns(Paths.get("submissions.log"));
+ * int[] ports = columns.ints("PORT");
+ * </pre>
+ * 
+ * The System env and properties are looked up and converted once per call,
+ * not once per vector, as they are the same for all of them. Each vector is
+ * then resolved like {@link OptionSchema#resolve(String...)}, on the
+ * {@link ForkJoinPool}. The first failing vector fails the whole call.
+ * <p>
+ * A <code>BulkResolver</code> is immutable and thus safe to share between
+ * threads.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class BulkResolver {
+
+    private static final byte OBJECT = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+
+    private final OptionSchema schema;
+    private final ForkJoinPool pool;
+
+    /** the kind of column of each option */
+    private final byte[] kinds;
+
+    /**
+     * whether a number option still has the built-in converter, which
+     * {@link OptionsResolver#toInt(String, String, Character)} etc. are
+     * equal to
+     */
+    private final boolean[] builtIn;
+
+    /**
+     * Uses the {@link ForkJoinPool#commonPool()}.
+     */
+    public BulkResolver(OptionSchema schema) {
+        this(schema, ForkJoinPool.commonPool());
+    }
+
+    public BulkResolver(OptionSchema schema, ForkJoinPool pool) {
+        this.schema = schema;
+        this.pool = pool;
+        this.kinds = new byte[schema.size()];
+        this.builtIn = new boolean[kinds.length];
+
+        for (int i = 0; i < kinds.length; i++) {
+            Class<?> type = schema.type(i);
+            if (schema.defaultValue(i) == null) {
+                kinds[i] = OBJECT; // null does not fit a primitive
+            }
+            else if (type == Integer.class) {
+                kinds[i] = INT;
+            }
+            else if (type == Long.class) {
+                kinds[i] = LONG;
+            }
+            else if (type == Double.class) {
+                kinds[i] = DOUBLE;
+            }
+            else if (type == Boolean.class) {
+                kinds[i] = BOOLEAN;
+            }
+            builtIn[i] = Converters.builtInType(schema.converter(i)) == type;
+        }
+    }
+
+    /**
+     * @return the schema of this resolver
+     */
+    public OptionSchema schema() {
+        return schema;
+    }
+
+    /**
+     * Resolves each vector and passes the options to <code>action</code>,
+     * concurrently and in no particular order.
+     * 
+     * @param vectors
+     *            argument vectors, like <code>String[] args</code>
+     * @param action
+     *            called from many threads at once
+     * @throws OptionsResolver.OptionsException
+     *             like {@link OptionsResolver}
+     */
+    public void forEach(Stream<String[]> vectors,
+            Consumer<? super ResolvedOptions> action) {
+        Object[] hoisted = schema.hoist();
+        run(() -> vectors.parallel().forEach(
+                args -> action.accept(schema.resolve(ParsedArgs.of(args),
+                        hoisted))));
+    }
+
+    /**
+     * @see #forEach(Stream, Consumer)
+     */
+    public void forEach(Spliterator<String[]> vectors,
+            Consumer<? super ResolvedOptions> action) {
+        forEach(StreamSupport.stream(vectors, true), action);
+    }
+
+    /**
+     * Same as {@link #forEach(Stream, Consumer)} for a UTF-8 file with one
+     * vector per line, in the syntax of an <code>@argfile</code> (see
+     * {@link ParsedArgs#expand(String...)}).
+     * 
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if a quote is not closed
+     */
+    public void forEach(Path file, Consumer<? super ResolvedOptions> action)
+            throws IOException {
+        Object[] hoisted = schema.hoist();
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            run(() -> lines.parallel().forEach(
+                    line -> action.accept(schema.resolve(
+                            ParsedArgs.split(line), hoisted))));
+        }
+    }
+
+    /**
+     * Resolves all vectors into one column per option, in the order of
+     * <code>vectors</code>.
+     * 
+     * @param vectors
+     *            argument vectors, like <code>String[] args</code>, should
+     *            have constant time random access
+     * @throws OptionsResolver.OptionsException
+     *             like {@link OptionsResolver}
+     */
+    public Columns columns(List<String[]> vectors) {
+        return columns(vectors.size(), i -> ParsedArgs.of(vectors.get(i)));
+    }
+
+    /**
+     * Same as {@link #columns(List)} for a UTF-8 file with one vector per
+     * line, see {@link #forEach(Path, Consumer)}.
+     * 
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if a quote is not closed
+     */
+    public Columns columns(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        return columns(lines.size(), i -> ParsedArgs.split(lines.get(i)));
+    }
+
+    private Columns columns(int rows, IntFunction<ParsedArgs> vectors) {
+        Columns columns = new Columns(schema, kinds, rows);
+        Object[] hoisted = schema.hoist();
+        int threshold = Math.max(64, rows / (pool.getParallelism() * 8));
+        run(() -> new Fill(columns, vectors, hoisted, 0, rows, threshold)
+                .invoke());
+
+        return columns;
+    }
+
+    private void run(Runnable task) {
+        if (ForkJoinPool.commonPool() == pool) {
+            task.run(); // parallel streams use the common pool anyway
+        }
+        else {
+            pool.submit(task).join();
+        }
+    }
+
+    /**
+     * Fills the rows <code>from</code> to <code>to</code>, splitting them
+     * until there are no more than <code>threshold</code>.
+     */
+    private final class Fill extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Columns columns;
+        private final IntFunction<ParsedArgs> vectors;
+        private final Object[] hoisted;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        Fill(Columns columns, IntFunction<ParsedArgs> vectors,
+                Object[] hoisted, int from, int to, int threshold) {
+            this.columns = columns;
+            this.vectors = vectors;
+            this.hoisted = hoisted;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > threshold) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Fill(columns, vectors, hoisted, from, middle,
+                        threshold), new Fill(columns, vectors, hoisted, middle,
+                        to, threshold));
+                return;
+            }
+
+            for (int row = from; row < to; row++) {
+                ParsedArgs args = vectors.apply(row);
+                for (int i = 0; i < kinds.length; i++) {
+                    fill(i, row, args);
+                }
+            }
+        }
+
+        private void fill(int option, int row, ParsedArgs args) {
+            Object column = columns.columns[option];
+            String value = hoisted[option] == OptionSchema.UNSET ? schema
+                    .find(option, args) : null;
+
+            if (value == null) {
+                set(option, column, row, hoisted[option] != OptionSchema.UNSET
+                        ? hoisted[option] : schema.defaultValue(option));
+                return;
+            }
+
+            String key = schema.key(option);
+            Character flag = schema.flag(option);
+            switch (builtIn[option] ? kinds[option] : OBJECT) {
+            case INT:
+                ((int[]) column)[row] = OptionsResolver.toInt(value, key, flag);
+                break;
+            case LONG:
+                ((long[]) column)[row] = OptionsResolver.toLong(value, key,
+                        flag);
+                break;
+            case DOUBLE:
+                ((double[]) column)[row] = OptionsResolver.toDouble(value, key,
+                        flag);
+                break;
+            case BOOLEAN:
+                ((boolean[]) column)[row] = OptionsResolver.toBoolean(value);
+                break;
+            default:
+                // also replaced number converters, unboxed into the column
+                set(option, column, row, schema.convert(option, value));
+            }
+        }
+
+        private void set(int option, Object column, int row, Object value) {
+            switch (kinds[option]) {
+            case INT:
+                ((int[]) column)[row] = (Integer) value;
+                break;
+            case LONG:
+                ((long[]) column)[row] = (Long) value;
+                break;
+            case DOUBLE:
+                ((double[]) column)[row] = (Double) value;
+                break;
+            case BOOLEAN:
+                ((boolean[]) column)[row] = (Boolean) value;
+                break;
+            default:
+                ((Object[]) column)[row] = value;
+            }
+        }
+    }
+
+    /**
+     * The values of all options for many argument vectors, one array per
+     * option: <code>int[]</code>, <code>long[]</code>, <code>double[]</code>
+     * and <code>boolean[]</code> for {@link Integer}, {@link Long},
+     * {@link Double} and {@link Boolean} options with a default value,
+     * <code>Object[]</code> for all others.
+     */
+    public static final class Columns {
+
+        private final OptionSchema schema;
+        private final byte[] kinds;
+        private final Object[] columns;
+        private final int size;
+
+        Columns(OptionSchema schema, byte[] kinds, int size) {
+            this.schema = schema;
+            this.kinds = kinds;
+            this.size = size;
+            this.columns = new Object[kinds.length];
+
+            for (int i = 0; i < kinds.length; i++) {
+                switch (kinds[i]) {
+                case INT:
+                    columns[i] = new int[size];
+                    break;
+                case LONG:
+                    columns[i] = new long[size];
+                    break;
+                case DOUBLE:
+                    columns[i] = new double[size];
+                    break;
+                case BOOLEAN:
+                    columns[i] = new boolean[size];
+                    break;
+                default:
+                    columns[i] = new Object[size];
+                }
+            }
+        }
+
+        /**
+         * @return the schema of these options
+         */
+        public OptionSchema schema() {
+            return schema;
+        }
+
+        /**
+         * @return the number of vectors
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the values of an {@link Integer} option, not a copy
+         * @throws IllegalArgumentException
+         *             if there is no such option or it is of another column
+         *             type
+         */
+        public int[] ints(String key) {
+            return (int[]) column(key, INT);
+        }
+
+        /**
+         * @return the values of a {@link Long} option, not a copy
+         * @throws IllegalArgumentException
+         *             if there is no such option or it is of another column
+         *             type
+         */
+        public long[] longs(String key) {
+            return (long[]) column(key, LONG);
+        }
+
+        /**
+         * @return the values of a {@link Double} option, not a copy
+         * @throws IllegalArgumentException
+         *             if there is no such option or it is of another column
+         *             type
+         */
+        public double[] doubles(String key) {
+            return (double[]) column(key, DOUBLE);
+        }
+
+        /**
+         * @return the values of a {@link Boolean} option, not a copy
+         * @throws IllegalArgumentException
+         *             if there is no such option or it is of another column
+         *             type
+         */
+        public boolean[] booleans(String key) {
+            return (boolean[]) column(key, BOOLEAN);
+        }
+
+        /**
+         * @return the values of any other option, not a copy
+         * @throws IllegalArgumentException
+         *             if there is no such option or it is of another column
+         *             type
+         */
+        public Object[] values(String key) {
+            return (Object[]) column(key, OBJECT);
+        }
+
+        private Object column(String key, byte kind) {
+            int index = schema.indexOf(key);
+            if (kinds[index] != kind) {
+                throw new IllegalArgumentException(String.format(
+                        "Option %s is a column of %s", key, columns[index]
+                                .getClass().getComponentType()));
+            }
+
+            return columns[index];
+        }
+    }
+}
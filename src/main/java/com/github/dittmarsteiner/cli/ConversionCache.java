@@ -0,0 +1,219 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache of converted values, keyed by the raw value, for one
+ * immutable type whose conversion is expensive, e.g. {@link java.net.URI}
+ * or {@link java.math.BigDecimal}. See
+ * {@link Converters#cache(Class, int)}:
+ * 
+ * <pre>
+ * ConversionCache&lt;BigDecimal&gt; cache = Converters.cache(BigDecimal.class, 1024);
+ * ...
+ * double hitRate = (double) cache.hits() / (cache.hits() + cache.misses());
+ * </pre>
+ * 
+ * The least recently used values are evicted first. The cache is split into
+ * segments by the hash of the raw value, each with its own lock, so threads
+ * converting different values rarely wait for each other. A value is
+ * converted outside of the lock; if two threads miss the same value at once,
+ * both convert it and the first one is kept.
+ * <p>
+ * Only cache immutable types, the same instance is returned to every caller.
+ * A hit costs about as much as parsing a short <code>BigDecimal</code>, so
+ * caching pays off for conversions which are more expensive than that,
+ * measure with <code>ConvertBenchmark</code>.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class ConversionCache<T> implements Converter<T> {
+
+    private final Class<T> type;
+    private final Converter<? extends T> converter;
+    private final Segment<T>[] segments;
+    private final int mask;
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    ConversionCache(Class<T> type, Converter<? extends T> converter,
+            int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Maximum size of %s is %d", type.getName(), maximumSize));
+        }
+
+        this.type = type;
+        this.converter = converter;
+        this.maximumSize = maximumSize;
+
+        // up to 16 segments of at least 16 values each
+        int count = 1;
+        while (count < 16 && count * 32 <= maximumSize) {
+            count <<= 1;
+        }
+        segments = new Segment[count];
+        mask = count - 1;
+
+        int size = maximumSize / count;
+        for (int i = 0; i < count; i++) {
+            // the remainder goes to the first segments
+            segments[i] = new Segment<>(this, size + (i < maximumSize % count
+                    ? 1 : 0));
+        }
+    }
+
+    @Override
+    public T convert(String value) {
+        int h = value.hashCode();
+        Segment<T> segment = segments[(h ^ (h >>> 16)) & mask];
+
+        T converted;
+        synchronized (segment) {
+            converted = segment.get(value);
+        }
+        if (converted != null) {
+            hits.increment();
+            return converted;
+        }
+
+        misses.increment();
+        converted = converter.convert(value);
+        if (converted == null) {
+            return null;
+        }
+
+        synchronized (segment) {
+            T present = segment.putIfAbsent(value, converted);
+            return present != null ? present : converted;
+        }
+    }
+
+    /**
+     * @return the cached type
+     */
+    public Class<T> type() {
+        return type;
+    }
+
+    /**
+     * @return the converter called on a miss
+     */
+    public Converter<? extends T> converter() {
+        return converter;
+    }
+
+    /**
+     * @return the maximum number of cached values
+     */
+    public int maximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return the number of conversions answered from the cache
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of conversions which called the converter
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of values evicted to stay within the maximum size
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all values and resets the statistics.
+     */
+    public void clear() {
+        for (Segment<T> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[size=%d/%d, hits=%d, misses=%d, evictions=%d]",
+                type.getName(), size(), maximumSize, hits(), misses(),
+                evictions());
+    }
+
+    /**
+     * A map in access order, which evicts its eldest entry when full.
+     * Guarded by itself.
+     */
+    private static final class Segment<T> extends LinkedHashMap<String, T> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient ConversionCache<T> cache;
+        private final int capacity;
+
+        Segment(ConversionCache<T> cache, int capacity) {
+            super(16, 0.75f, true);
+            this.cache = cache;
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+            if (size() > capacity) {
+                cache.evictions.increment();
+                return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
+/**
+ * The registry of {@link Converter}s used by {@link OptionsResolver}, keyed
+ * by the type of the default value.
+ * <p>
+ * {@link Integer}, {@link Long}, {@link Double}, {@link Float},
+ * {@link Boolean} and {@link String} are built in. Any other type with a
+ * public constructor <code><i>&lt;Type&gt;</i>(String value)</code> gets a
+ * converter calling that constructor, looked up only once per type. Types
+ * without such a constructor can be registered:
+ * 
+ * <pre>
+ * Converters.register(Duration.class, Duration::parse);
+ * Duration timeout = OptionsResolver.resolve(Duration.ofSeconds(30),
+ *         "TIMEOUT", 't', args);
+ * </pre>
+ * 
+ * Immutable types which are expensive to convert can be cached, see
+ * {@link #cache(Class, int)}.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class Converters {
+
+    private static final MethodType STRING_CONSTRUCTOR = MethodType
+            .methodType(void.class, String.class);
+
+    private static final ConcurrentMap<Class<?>, Converter<?>> converters =
+            new ConcurrentHashMap<>();
+
+    /** the converters {@link Numbers} knows the grammar of */
+    private static final Map<Class<?>, Converter<?>> builtIn =
+            new HashMap<>();
+
+    static {
+        builtIn.put(Integer.class, (Converter<Integer>) Integer::valueOf);
+        builtIn.put(Long.class, (Converter<Long>) Long::valueOf);
+        builtIn.put(Double.class, (Converter<Double>) Double::valueOf);
+        builtIn.put(Float.class, (Converter<Float>) Float::valueOf);
+        builtIn.put(Boolean.class, (Converter<Boolean>) Boolean::valueOf);
+        converters.putAll(builtIn);
+        converters.put(String.class, (Converter<String>) value -> value);
+    }
+
+    private Converters() {
+    }
+
+    /**
+     * Registers or replaces the converter for a type.
+     * 
+     * @param type
+     *            the exact class of the default values to convert for
+     * @param converter
+     *            the converter
+     */
+    public static <T> void register(Class<T> type,
+            Converter<? extends T> converter) {
+        if (type == null || converter == null) {
+            throw new NullPointerException("type and converter are required");
+        }
+
+        converters.put(type, converter);
+    }
+
+    /**
+     * Reports the failures of a converter like the <code>String</code>
+     * constructor of a type, e.g. for <code>Type::new</code> or
+     * <code>Type::valueOf</code>.
+     *
+     * @return a converter throwing a {@link StringConstructorException} for
+     *         any <code>RuntimeException</code> of <code>converter</code>
+     */
+    public static <T> Converter<T> wrap(Class<T> type,
+            Converter<? extends T> converter) {
+        return value -> {
+            try {
+                return converter.convert(value);
+            }
+            catch (RuntimeException e) {
+                throw new StringConstructorException(value, type, e);
+            }
+        };
+    }
+
+    /**
+     * Caches the converted values of a type from now on, see
+     * {@link ConversionCache}. Replaces a cache of the same type.
+     * {@link OptionSchema}s built before keep converting without.
+     * 
+     * @param type
+     *            the exact class of the default values, must be immutable
+     * @param maximumSize
+     *            the maximum number of cached values, at least 1
+     * @return the new cache, e.g. for its statistics
+     */
+    public static <T> ConversionCache<T> cache(Class<T> type,
+            int maximumSize) {
+        Converter<? extends T> converter = forType(type);
+        if (converter instanceof ConversionCache) {
+            converter = ((ConversionCache<? extends T>) converter).converter();
+        }
+
+        ConversionCache<T> cache = new ConversionCache<>(type, converter,
+                maximumSize);
+        converters.put(type, cache);
+        return cache;
+    }
+
+    /**
+     * Stops caching the values of a type.
+     * 
+     * @return <code>false</code> if not cached
+     */
+    public static boolean uncache(Class<?> type) {
+        Converter<?> converter = converters.get(type);
+        return converter instanceof ConversionCache && converters.replace(
+                type, converter, ((ConversionCache<?>) converter).converter());
+    }
+
+    /**
+     * @param type
+     *            the exact class of the default value
+     * @return the registered converter or one calling the
+     *         <code>String</code> constructor of <code>type</code>
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Converter<T> forType(Class<T> type) {
+        Converter<?> converter = converters.get(type);
+        if (converter == null) {
+            converter = converters.computeIfAbsent(type,
+                    Converters::stringConstructor);
+        }
+
+        return (Converter<T>) converter;
+    }
+
+    /**
+     * @return the type <code>converter</code> is the built-in one of, also
+     *         if cached, or <code>null</code>
+     */
+    static Class<?> builtInType(Converter<?> converter) {
+        if (converter instanceof ConversionCache) {
+            converter = ((ConversionCache<?>) converter).converter();
+        }
+
+        for (Map.Entry<Class<?>, Converter<?>> entry : builtIn.entrySet()) {
+            if (entry.getValue() == converter) {
+                return entry.getKey();
+            }
+        }
+
+        return null;
+    }
+
+    private static Converter<?> stringConstructor(Class<?> type) {
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup()
+                    .findConstructor(type, STRING_CONSTRUCTOR)
+                    .asType(MethodType.methodType(Object.class, String.class));
+        }
+        catch (NoSuchMethodException | IllegalAccessException e) {
+            return value -> {
+                throw new StringConstructorException(value, type, e);
+            };
+        }
+
+        return value -> {
+            try {
+                return constructor.invokeExact(value);
+            }
+            catch (Error e) {
+                throw e;
+            }
+            catch (Throwable e) {
+                throw new StringConstructorException(value, type, e);
+            }
+        };
+    }
+}
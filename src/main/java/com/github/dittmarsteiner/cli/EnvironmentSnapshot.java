@@ -0,0 +1,217 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable copy of the System environment and the System properties.
+ * <p>
+ * By default {@link OptionsResolver} reads <code>System.getenv(key)</code>
+ * and <code>System.getProperty(key)</code> on every call, and the latter
+ * synchronizes on the System properties. After {@link #enable()} it reads a
+ * snapshot instead, which takes no locks. Changes to the environment or the
+ * properties are not seen until {@link #refresh()}:
+ * 
+ * <pre>
+ * EnvironmentSnapshot.enable();
+ * ...
+ * System.setProperty("PORT", "80");
+ * EnvironmentSnapshot.refresh();
+ * </pre>
+ * 
+ * The order of resolution is the same as without a snapshot. Like
+ * <code>System.getenv(key)</code>, {@link #getenv(String)} ignores the case of
+ * the key on Windows.
+ * <p>
+ * The keys are also kept sorted, so all keys with a common prefix like
+ * <code>APP_DB_</code> are found by a binary search, see
+ * {@link #getenvByPrefix(String)}.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class EnvironmentSnapshot {
+
+    private static final AtomicReference<EnvironmentSnapshot> current =
+            new AtomicReference<>();
+
+    /** whether the System environment ignores the case of keys */
+    static final boolean WINDOWS = System.getProperty("os.name", "")
+            .startsWith("Windows");
+
+    private final StringTable env;
+    private final StringTable properties;
+    private final String[] envKeys;
+    private final String[] propertyKeys;
+    private final boolean ignoreCase;
+
+    EnvironmentSnapshot(Map<String, String> env, Properties properties,
+            boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.env = new StringTable(ignoreCase ? upperCase(env) : env);
+        this.envKeys = sorted(env);
+
+        Map<String, String> map = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            map.put(name, properties.getProperty(name));
+        }
+        this.properties = new StringTable(map);
+        this.propertyKeys = sorted(map);
+    }
+
+    /**
+     * @return a new snapshot of the current System environment and
+     *         properties
+     */
+    public static EnvironmentSnapshot capture() {
+        return new EnvironmentSnapshot(System.getenv(),
+                System.getProperties(), WINDOWS);
+    }
+
+    /**
+     * Captures a snapshot and lets {@link OptionsResolver} use it from now
+     * on.
+     */
+    public static void enable() {
+        current.set(capture());
+    }
+
+    /**
+     * Lets {@link OptionsResolver} read the System environment and properties
+     * directly again.
+     */
+    public static void disable() {
+        current.set(null);
+    }
+
+    /**
+     * Captures a new snapshot and replaces the one in use atomically. Does
+     * nothing if not {@link #enable() enabled}.
+     */
+    public static void refresh() {
+        EnvironmentSnapshot snapshot;
+        do {
+            snapshot = current.get();
+            if (snapshot == null) {
+                return;
+            }
+        } while (!current.compareAndSet(snapshot, capture()));
+    }
+
+    /**
+     * @return the snapshot in use or <code>null</code> if disabled
+     */
+    public static EnvironmentSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * @param key
+     *            case-sensitive, but not on Windows
+     * @return same as <code>System.getenv(key)</code> at the time of the
+     *         snapshot
+     */
+    public String getenv(String key) {
+        return env.get(ignoreCase && key != null ? key.toUpperCase(Locale.ROOT)
+                : key);
+    }
+
+    /**
+     * @param key
+     *            case-sensitive
+     * @return same as <code>System.getProperty(key)</code> at the time of the
+     *         snapshot
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    /**
+     * @param prefix
+     *            case-sensitive, e.g. <code>APP_DB_</code>
+     * @return all variables of the System environment whose key starts with
+     *         <code>prefix</code>, ordered by key
+     */
+    public Map<String, String> getenvByPrefix(String prefix) {
+        return byPrefix(envKeys, this::getenv, prefix);
+    }
+
+    /**
+     * @param prefix
+     *            case-sensitive, e.g. <code>app.db.</code>
+     * @return all System properties whose key starts with
+     *         <code>prefix</code>, ordered by key
+     */
+    public Map<String, String> getPropertiesByPrefix(String prefix) {
+        return byPrefix(propertyKeys, properties::get, prefix);
+    }
+
+    /**
+     * Finds the first key by a binary search, then reads only the matches.
+     */
+    private static Map<String, String> byPrefix(String[] keys,
+            UnaryOperator<String> table, String prefix) {
+        int i = Arrays.binarySearch(keys, prefix);
+        if (i < 0) {
+            i = -i - 1;
+        }
+
+        Map<String, String> map = new LinkedHashMap<>();
+        for (; i < keys.length && keys[i].startsWith(prefix); i++) {
+            map.put(keys[i], table.apply(keys[i]));
+        }
+
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static Map<String, String> upperCase(Map<String, String> env) {
+        Map<String, String> map = new HashMap<>();
+        for (Map.Entry<String, String> entry : env.entrySet()) {
+            if (entry.getKey() != null) {
+                map.put(entry.getKey().toUpperCase(Locale.ROOT),
+                        entry.getValue());
+            }
+        }
+
+        return map;
+    }
+
+    private static String[] sorted(Map<String, String> map) {
+        List<String> keys = new ArrayList<>(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() != null && entry.getValue() != null) {
+                keys.add(entry.getKey());
+            }
+        }
+
+        String[] sorted = keys.toArray(new String[keys.size()]);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+}
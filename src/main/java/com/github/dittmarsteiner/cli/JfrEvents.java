@@ -0,0 +1,82 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JDK Flight Recorder events of {@link ResolverMetrics}. Only loaded if
+ * <code>jdk.jfr</code> is available, and left out by the <code>no-jfr</code>
+ * build profile, e.g. on JDK 8.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+final class JfrEvents implements ResolverMetrics.Events {
+
+    @Override
+    public void resolved(Origin origin, String key, Character flag) {
+        OptionResolvedEvent event = new OptionResolvedEvent();
+        if (event.shouldCommit()) {
+            event.origin = origin.name();
+            event.key = key;
+            event.flag = flag != null ? flag.charValue() : '\0';
+            event.commit();
+        }
+    }
+
+    @Override
+    public void failed(Class<?> type, String message) {
+        OptionFailedEvent event = new OptionFailedEvent();
+        if (event.shouldCommit()) {
+            event.exception = type.getName();
+            event.message = message;
+            event.commit();
+        }
+    }
+
+    @Name("com.github.dittmarsteiner.cli.OptionResolved")
+    @Label("Option Resolved")
+    @Category("OptionsResolver")
+    @StackTrace(false)
+    static class OptionResolvedEvent extends Event {
+        @Label("Origin")
+        String origin;
+
+        @Label("Key")
+        String key;
+
+        @Label("Flag")
+        char flag;
+    }
+
+    @Name("com.github.dittmarsteiner.cli.OptionFailed")
+    @Label("Option Failed")
+    @Category("OptionsResolver")
+    static class OptionFailedEvent extends Event {
+        @Label("Exception")
+        String exception;
+
+        @Label("Message")
+        String message;
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resolves options from a chain of {@link OptionSource}s, the first one with
+ * a value wins, e.g.:
+ * 
+ * <pre>
+ * LayeredResolver resolver = new LayeredResolver(tenantOverrides,
+ *         OptionSources.env(), OptionSources.properties(),
+ *         OptionSources.args(args));
+ * int port = resolver.resolveInt(8080, "PORT", 'p');
+ * </pre>
+ * 
+ * {@link #standard(String...)} has the same order as
+ * {@link OptionsResolver}.
+ * <p>
+ * The chain is an immutable array, replaced as a whole when a layer is
+ * added, replaced or removed (copy-on-write). Resolving only reads it once
+ * and never locks, so it is cheap to share one instance between many
+ * threads.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class LayeredResolver {
+
+    private volatile OptionSource[] sources;
+
+    /**
+     * @param sources
+     *            in the order of precedence
+     */
+    public LayeredResolver(OptionSource... sources) {
+        this.sources = check(sources.clone());
+    }
+
+    /**
+     * @return env, properties and <code>args</code>, like
+     *         {@link OptionsResolver}
+     */
+    public static LayeredResolver standard(String... args) {
+        return new LayeredResolver(OptionSources.env(),
+                OptionSources.properties(), OptionSources.args(args));
+    }
+
+    /**
+     * @return the current chain, in the order of precedence
+     */
+    public List<OptionSource> sources() {
+        return Collections.unmodifiableList(Arrays.asList(sources));
+    }
+
+    /**
+     * Inserts a layer.
+     * 
+     * @param index
+     *            0 for the highest precedence, {@link #sources()}.size() for
+     *            the lowest
+     */
+    public synchronized void add(int index, OptionSource source) {
+        List<OptionSource> list = new ArrayList<>(Arrays.asList(sources));
+        list.add(index, source);
+        sources = check(list.toArray(new OptionSource[list.size()]));
+    }
+
+    /**
+     * Replaces a layer atomically, e.g. a reloaded configuration.
+     * 
+     * @return <code>false</code> if <code>old</code> is not in the chain
+     */
+    public synchronized boolean replace(OptionSource old, OptionSource source) {
+        OptionSource[] copy = sources.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if (copy[i] == old) {
+                copy[i] = source;
+                sources = check(copy);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a layer.
+     * 
+     * @return <code>false</code> if <code>source</code> is not in the chain
+     */
+    public synchronized boolean remove(OptionSource source) {
+        List<OptionSource> list = new ArrayList<>(Arrays.asList(sources));
+        if (!list.remove(source)) {
+            return false;
+        }
+
+        sources = list.toArray(new OptionSource[list.size()]);
+        return true;
+    }
+
+    /**
+     * @see OptionsResolver#resolve(Object, String, Character, String...)
+     */
+    public <T> T resolve(T defaultValue, String key, Character flag) {
+        String value = lookup(key, flag, defaultValue instanceof Boolean);
+        if (value == null || defaultValue == null) {
+            return defaultValue;
+        }
+
+        @SuppressWarnings("unchecked")
+        Converter<T> converter = (Converter<T>) Converters
+                .forType(defaultValue.getClass());
+        return OptionsResolver.convert(converter, value, key, flag);
+    }
+
+    /**
+     * @see OptionsResolver#resolve(Class, Object, String, Character,
+     *      ParsedArgs)
+     */
+    public <T> T resolve(Class<T> type, T defaultValue, String key,
+            Character flag) {
+        String value = lookup(key, flag, type == Boolean.class);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return OptionsResolver.convert(Converters.forType(type), value, key,
+                flag);
+    }
+
+    /**
+     * @see OptionsResolver#resolveInt(int, String, Character, String...)
+     */
+    public int resolveInt(int defaultValue, String key, Character flag) {
+        String value = lookup(key, flag, false);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return OptionsResolver.toInt(value, key, flag);
+    }
+
+    /**
+     * @see OptionsResolver#resolveLong(long, String, Character, String...)
+     */
+    public long resolveLong(long defaultValue, String key, Character flag) {
+        String value = lookup(key, flag, false);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return OptionsResolver.toLong(value, key, flag);
+    }
+
+    /**
+     * @see OptionsResolver#resolveDouble(double, String, Character,
+     *      String...)
+     */
+    public double resolveDouble(double defaultValue, String key,
+            Character flag) {
+        String value = lookup(key, flag, false);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return OptionsResolver.toDouble(value, key, flag);
+    }
+
+    /**
+     * @see OptionsResolver#resolveBoolean(boolean, String, Character,
+     *      String...)
+     */
+    public boolean resolveBoolean(boolean defaultValue, String key,
+            Character flag) {
+        String value = lookup(key, flag, true);
+        return value != null ? OptionsResolver.toBoolean(value)
+                : defaultValue;
+    }
+
+    /**
+     * @return the raw value from the first source which has one, or
+     *         <code>null</code>
+     */
+    String lookup(String key, Character flag, boolean bool) {
+        OptionSource[] sources = this.sources;
+        for (OptionSource source : sources) {
+            String value = source.lookup(key, flag, bool);
+            if (value != null) {
+                return source instanceof OptionSources.Counted ? value
+                        : OptionsResolver.found(Origin.SOURCE, key, flag,
+                                value);
+            }
+        }
+
+        return OptionsResolver.found(Origin.DEFAULT, key, flag, null);
+    }
+
+    private static OptionSource[] check(OptionSource[] sources) {
+        for (OptionSource source : sources) {
+            if (source == null) {
+                throw new NullPointerException("source is null");
+            }
+        }
+
+        return sources;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+/**
+ * Checks numbers for the built-in {@link Converters} without parsing them,
+ * so invalid ones are found without a {@link NumberFormatException}, and
+ * parses numbers in a part of a <code>String</code> without a substring.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+final class Numbers {
+
+    /** the powers of ten which are exact doubles */
+    private static final double[] POWERS = new double[23];
+
+    static {
+        POWERS[0] = 1;
+        for (int i = 1; i < POWERS.length; i++) {
+            POWERS[i] = POWERS[i - 1] * 10;
+        }
+    }
+
+    private Numbers() {
+    }
+
+    /**
+     * @return <code>false</code> if <code>value</code> is certainly not valid
+     *         for <code>type</code>, <code>true</code> if valid or not a
+     *         built-in number type
+     */
+    static boolean isValid(Class<?> type, String value) {
+        if (type == Integer.class) {
+            return fits(value, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        }
+        if (type == Long.class) {
+            return fits(value, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+        if (type == Double.class || type == Float.class) {
+            return isDecimal(value);
+        }
+
+        return true;
+    }
+
+    /**
+     * The grammar of {@link Long#parseLong(String)}, with the same overflow
+     * checks.
+     */
+    static boolean fits(String value, long min, long max) {
+        int length = value.length();
+        if (length == 0) {
+            return false;
+        }
+
+        int i = 0;
+        long limit = -max;
+        char first = value.charAt(0);
+        if (first == '-' || first == '+') {
+            if (length == 1) {
+                return false;
+            }
+            if (first == '-') {
+                limit = min;
+            }
+            i++;
+        }
+
+        // accumulating negatively, like Long.parseLong
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0 || result < multmin) {
+                return false;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return false;
+            }
+            result -= digit;
+        }
+
+        return true;
+    }
+
+    /**
+     * The decimal grammar of {@link Double#valueOf(String)}. Hexadecimal
+     * numbers, <code>NaN</code> and <code>Infinity</code> are left to the
+     * parser.
+     */
+    static boolean isDecimal(String value) {
+        // trimmed like String.trim()
+        int end = value.length();
+        int i = 0;
+        while (i < end && value.charAt(i) <= ' ') {
+            i++;
+        }
+        while (end > i && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        if (i < end) {
+            char c = value.charAt(i);
+            if (c == 'N' || c == 'I' || c == '0' && i + 1 < end &&
+                    (value.charAt(i + 1) == 'x' || value.charAt(i + 1) == 'X')) {
+                return true;
+            }
+        }
+
+        int digits = 0;
+        while (i < end && isDigit(value.charAt(i))) {
+            i++;
+            digits++;
+        }
+        if (i < end && value.charAt(i) == '.') {
+            i++;
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (value.charAt(i) == '-' ||
+                    value.charAt(i) == '+')) {
+                i++;
+            }
+            if (i == end || !isDigit(value.charAt(i))) {
+                return false;
+            }
+            while (i < end && isDigit(value.charAt(i))) {
+                i++;
+            }
+        }
+
+        if (i < end && "fFdD".indexOf(value.charAt(i)) >= 0) {
+            i++;
+        }
+
+        return i == end;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Same as {@link Long#parseLong(String)} for the characters
+     * <code>from</code> to <code>to</code>, with white space around them
+     * trimmed.
+     * 
+     * @throws NumberFormatException
+     *             if not a number between <code>min</code> and
+     *             <code>max</code>
+     */
+    static long parseLong(String value, int from, int to, long min, long max) {
+        int i = trimStart(value, from, to);
+        int end = trimEnd(value, i, to);
+        if (i == end) {
+            throw invalid(value, from, to);
+        }
+
+        boolean negative = false;
+        char first = value.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                throw invalid(value, from, to);
+            }
+        }
+
+        // accumulating negatively, like Long.parseLong
+        long limit = negative ? min : -max;
+        long multmin = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0 || result < multmin) {
+                throw invalid(value, from, to);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw invalid(value, from, to);
+            }
+            result -= digit;
+        }
+
+        return negative ? result : -result;
+    }
+
+    /**
+     * Same as {@link Double#parseDouble(String)} for the characters
+     * <code>from</code> to <code>to</code>. Decimals with up to 15 digits
+     * and an exponent up to 22 are computed exactly from the characters, all
+     * others, and invalid ones, are parsed from a substring.
+     * 
+     * @throws NumberFormatException
+     *             if not a number
+     */
+    static double parseDouble(String value, int from, int to) {
+        int i = trimStart(value, from, to);
+        int end = trimEnd(value, i, to);
+
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i++) == '-';
+        }
+        if (i < end && !isDigit(value.charAt(i)) && value.charAt(i) != '.') {
+            // NaN, Infinity or invalid
+            return Double.parseDouble(value.substring(from, to));
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significant = 0;
+        int exponent = 0;
+        for (; i < end && isDigit(value.charAt(i)); i++, digits++) {
+            if (mantissa != 0 || value.charAt(i) != '0') {
+                significant++;
+            }
+            mantissa = mantissa * 10 + value.charAt(i) - '0';
+        }
+        if (i < end && value.charAt(i) == '.') {
+            for (i++; i < end && isDigit(value.charAt(i)); i++, digits++) {
+                if (mantissa != 0 || value.charAt(i) != '0') {
+                    significant++;
+                }
+                mantissa = mantissa * 10 + value.charAt(i) - '0';
+                exponent--;
+            }
+        }
+        if (digits == 0 || significant > 15) {
+            // invalid or not exact
+            return Double.parseDouble(value.substring(from, to));
+        }
+
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            boolean negativeExponent = false;
+            if (++i < end && (value.charAt(i) == '-' ||
+                    value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i++) == '-';
+            }
+            if (i == end || !isDigit(value.charAt(i))) {
+                return Double.parseDouble(value.substring(from, to));
+            }
+
+            int e = 0;
+            for (; i < end && isDigit(value.charAt(i)); i++) {
+                e = Math.min(e * 10 + value.charAt(i) - '0', 10000);
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i < end && "fFdD".indexOf(value.charAt(i)) >= 0) {
+            i++;
+        }
+        if (i != end || exponent < -22 || exponent > 22) {
+            // invalid, hexadecimal or not exact
+            return Double.parseDouble(value.substring(from, to));
+        }
+
+        // exact: both operands are exact doubles, one rounding only
+        double result = exponent < 0 ? mantissa / POWERS[-exponent]
+                : mantissa * POWERS[exponent];
+        return negative ? -result : result;
+    }
+
+    private static int trimStart(String value, int from, int to) {
+        while (from < to && value.charAt(from) <= ' ') {
+            from++;
+        }
+
+        return from;
+    }
+
+    private static int trimEnd(String value, int from, int to) {
+        while (to > from && value.charAt(to - 1) <= ' ') {
+            to--;
+        }
+
+        return to;
+    }
+
+    private static NumberFormatException invalid(String value, int from,
+            int to) {
+        if (!OptionsResolver.stackTraces) {
+            return OptionsResolver.NOT_A_NUMBER;
+        }
+
+        return new NumberFormatException(String.format(
+                "For input string: \"%s\"", value.substring(from, to)));
+    }
+}
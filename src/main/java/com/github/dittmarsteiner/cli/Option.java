@@ -0,0 +1,53 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.function.Supplier;
+
+/**
+ * An option resolved on the first {@link #get()} and memoized, see
+ * {@link Options#lazy(Object, String, Character, String...)}.
+ * 
+ * @param <T>
+ *            the type of the value
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public interface Option<T> extends Supplier<T> {
+
+    /**
+     * Resolves the value on the first call, later calls return the same
+     * value. Safe to call from many threads.
+     * 
+     * @return the resolved value if found, else the default value
+     * @throws OptionsResolver.OptionsException
+     *             like {@link OptionsResolver}, on every call until resolved
+     */
+    @Override
+    T get();
+
+    /**
+     * @return the key, may be <code>null</code>
+     */
+    String key();
+
+    /**
+     * @return the flag, may be <code>null</code>
+     */
+    Character flag();
+}
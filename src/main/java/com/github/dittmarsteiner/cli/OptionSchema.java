@@ -0,0 +1,405 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * A set of options declared up front and resolved together.
+ * <p>
+ * Names, flags and converters are prepared once by {@link Builder#build()}.
+ * {@link #resolve(String...)} then parses the arguments once and resolves
+ * every option with a constant number of lookups, in the same order and with
+ * the same matching as {@link OptionsResolver}:
+ * 
+ * <pre>
+ * OptionSchema schema = OptionSchema.builder()
+ *         .option(8080, "PORT", 'p')
+ *         .option(false, "TEST", 't')
+ *         .option(String.class, null, "NAME", 'n')
+ *         .build();
+ * 
+ * ResolvedOptions options = schema.resolve(args);
+ * int port = options.getInt("PORT");
+ * </pre>
+ * 
+ * A schema is immutable and thus safe to share between threads.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class OptionSchema {
+
+    /** see {@link #hoist()} */
+    static final Object UNSET = new Object();
+
+    private static final long FNV_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final String[] keys;
+    private final String[] names;
+    private final Character[] flags;
+    private final Class<?>[] types;
+    private final Object[] defaults;
+    private final Converter<?>[] converters;
+    private final boolean[] bools;
+    private final Map<String, Integer> indexes;
+
+    private OptionSchema(Builder builder) {
+        int size = builder.keys.size();
+        keys = builder.keys.toArray(new String[size]);
+        flags = builder.flags.toArray(new Character[size]);
+        types = builder.types.toArray(new Class<?>[size]);
+        defaults = builder.defaults.toArray();
+        names = new String[size];
+        converters = new Converter<?>[size];
+        bools = new boolean[size];
+        indexes = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            names[i] = OptionsResolver.longName(keys[i]);
+            converters[i] = Converters.forType(types[i]);
+            bools[i] = types[i] == Boolean.class;
+            indexes.put(keys[i], i);
+        }
+    }
+
+    /**
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param args
+     *            a list with 0..n entries or from e.g.
+     *            <code>public static void main(<b>String[] args</b>)</code>
+     * @return the values of all options
+     * @see #resolve(ParsedArgs)
+     */
+    public ResolvedOptions resolve(String... args) {
+        return resolve(ParsedArgs.parse(args));
+    }
+
+    /**
+     * @param args
+     *            the parsed program arguments, may be <code>null</code>
+     * @return the values of all options
+     * @throws OptionsResolver.OptionsException
+     *             like {@link OptionsResolver}, for the first option that
+     *             fails
+     */
+    public ResolvedOptions resolve(ParsedArgs args) {
+        return resolve(args, hoist());
+    }
+
+    /**
+     * @param hoisted
+     *            see {@link #hoist()}
+     */
+    ResolvedOptions resolve(ParsedArgs args, Object[] hoisted) {
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (hoisted[i] != UNSET) {
+                values[i] = hoisted[i];
+            }
+            else {
+                String value = find(i, args);
+                values[i] = value != null ? convert(i, value) : defaults[i];
+            }
+        }
+
+        return new ResolvedOptions(this, values);
+    }
+
+    /**
+     * Resolves the options in the System env or properties, which are the
+     * same for all arguments.
+     * 
+     * @return the converted values, {@link #UNSET} for options left to the
+     *         arguments
+     */
+    Object[] hoist() {
+        Object[] values = new Object[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            String value = OptionsResolver.env(keys[i], flags[i]);
+            if (value == null) {
+                value = OptionsResolver.property(keys[i], flags[i]);
+            }
+            values[i] = value != null ? convert(i, value) : UNSET;
+        }
+
+        return values;
+    }
+
+    /**
+     * Looks up an option in the program arguments only.
+     * 
+     * @return the raw value or <code>null</code> if not found
+     * @throws MissingArgumentException
+     *             if the argument is not followed by its value
+     */
+    String find(int index, ParsedArgs args) {
+        String value = args != null ? args.find(keys[index], names[index],
+                flags[index], bools[index]) : null;
+        if (value == ParsedArgs.MISSING) {
+            throw new MissingArgumentException(keys[index], flags[index],
+                    OptionsResolver.noArgument(args.size()));
+        }
+
+        return value != null ? value : OptionsResolver.found(Origin.DEFAULT,
+                keys[index], flags[index], null);
+    }
+
+    /**
+     * @return the number of options
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param index
+     *            0..{@link #size()}-1, in the order of declaration
+     * @return the key of the option
+     */
+    public String key(int index) {
+        return keys[index];
+    }
+
+    /**
+     * @param key
+     *            the key of an option
+     * @return its index in the order of declaration
+     * @throws IllegalArgumentException
+     *             if there is no option with this key
+     */
+    public int indexOf(String key) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown option %s", key));
+        }
+
+        return index;
+    }
+
+    /**
+     * @return a hash of the keys, flags, types and defaults of all options,
+     *         the same in every JVM
+     */
+    long fingerprint() {
+        long hash = FNV_BASIS;
+        for (int i = 0; i < keys.length; i++) {
+            hash = fnv(hash, keys[i]);
+            hash = fnv(hash, flags[i] != null ? flags[i].toString() : null);
+            hash = fnv(hash, types[i].getName());
+            hash = fnv(hash, stable(defaults[i]));
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return a hash of the System env variables and properties of all
+     *         options and of all <code>args</code>, i.e. of what the options
+     *         are resolved from
+     */
+    long inputs(ParsedArgs args) {
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.current();
+        long hash = FNV_BASIS;
+        for (String key : keys) {
+            if (key == null) {
+                continue;
+            }
+            hash = fnv(hash, snapshot != null ? snapshot.getenv(key) : System
+                    .getenv(key));
+            hash = fnv(hash, snapshot != null ? snapshot.getProperty(key)
+                    : System.getProperty(key));
+        }
+        for (int i = 0; args != null && i < args.size(); i++) {
+            hash = fnv(hash, args.get(i));
+        }
+
+        return hash;
+    }
+
+    /**
+     * @return the FNV-1a hash of <code>value</code> and a separator, which
+     *         tells <code>null</code> from <code>""</code>
+     */
+    private static long fnv(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= FNV_PRIME;
+            }
+        }
+        // beyond any char
+        hash ^= value != null ? 0x10000 : 0x10001;
+        return hash * FNV_PRIME;
+    }
+
+    /**
+     * @return <code>value.toString()</code>, or only the class name if that
+     *         is the identity based <code>Object.toString()</code>
+     */
+    private static String stable(Object value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            if (value.getClass().getMethod("toString")
+                    .getDeclaringClass() != Object.class) {
+                return value.toString();
+            }
+        }
+        catch (NoSuchMethodException e) {
+            // every class has toString()
+        }
+
+        return value.getClass().getName();
+    }
+
+    Character flag(int index) {
+        return flags[index];
+    }
+
+    Class<?> type(int index) {
+        return types[index];
+    }
+
+    Object defaultValue(int index) {
+        return defaults[index];
+    }
+
+    Converter<?> converter(int index) {
+        return converters[index];
+    }
+
+    Object convert(int index, String value) {
+        long start = ResolverMetrics.start();
+        try {
+            OptionsResolver.checkNumber(converters[index], value, keys[index],
+                    flags[index]);
+            return converters[index].convert(value);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(keys[index], flags[index], e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Declares the options of an {@link OptionSchema}.
+     */
+    public static final class Builder {
+
+        private final List<String> keys = new ArrayList<>();
+        private final List<Character> flags = new ArrayList<>();
+        private final List<Class<?>> types = new ArrayList<>();
+        private final List<Object> defaults = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Declares an option like
+         * {@link OptionsResolver#resolve(Object, String, Character, String...)}.
+         * 
+         * @param defaultValue
+         *            Defines also the type, must not be <code>null</code>
+         * @param key
+         *            Case-sensitive for System env or System property, but
+         *            made lower case for program argument like
+         *            <code>args[]</code>
+         * @param flag
+         *            a single character, case sensitive, may be
+         *            <code>null</code>
+         * @return this builder
+         */
+        public Builder option(Object defaultValue, String key, Character flag) {
+            if (defaultValue == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Default value of %s is null, declare its type", key));
+            }
+
+            return add(defaultValue.getClass(), defaultValue, key, flag);
+        }
+
+        /**
+         * Declares an option of an explicit type, e.g. without a default.
+         * 
+         * @param type
+         *            the type of the value
+         * @param defaultValue
+         *            may be <code>null</code>
+         * @param key
+         *            Case-sensitive for System env or System property, but
+         *            made lower case for program argument like
+         *            <code>args[]</code>
+         * @param flag
+         *            a single character, case sensitive, may be
+         *            <code>null</code>
+         * @return this builder
+         */
+        public <T> Builder option(Class<T> type, T defaultValue, String key,
+                Character flag) {
+            if (type == null) {
+                throw new IllegalArgumentException(String.format(
+                        "Type of %s is null", key));
+            }
+
+            return add(type, defaultValue, key, flag);
+        }
+
+        private Builder add(Class<?> type, Object defaultValue, String key,
+                Character flag) {
+            if (key == null) {
+                throw new IllegalArgumentException("Key is null");
+            }
+            if (keys.contains(key)) {
+                throw new IllegalArgumentException(String.format(
+                        "Duplicate option %s", key));
+            }
+
+            keys.add(key);
+            flags.add(flag);
+            types.add(type);
+            defaults.add(defaultValue);
+            return this;
+        }
+
+        /**
+         * @return the schema with all options declared so far
+         */
+        public OptionSchema build() {
+            return new OptionSchema(this);
+        }
+    }
+}
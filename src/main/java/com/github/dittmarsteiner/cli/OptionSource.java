@@ -0,0 +1,50 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+/**
+ * A source of raw option values, one layer of a {@link LayeredResolver}.
+ * <p>
+ * Implementations should answer a lookup in constant time, e.g. from an
+ * index built in advance, and must be safe to call from many threads.
+ * 
+ * @see OptionSources
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+@FunctionalInterface
+public interface OptionSource {
+
+    /**
+     * @param key
+     *            Case-sensitive for System env or System property, but made
+     *            lower case for program argument like <code>args[]</code>,
+     *            may be <code>null</code>
+     * @param flag
+     *            a single character, case sensitive, may be <code>null</code>
+     * @param bool
+     *            <code>true</code> for a {@link Boolean} option, which takes
+     *            no value in program arguments
+     * @return the raw value, <code>"true"</code> for a present
+     *         {@link Boolean} program argument or <code>null</code> if not
+     *         found
+     * @throws OptionsResolver.OptionsException
+     *             if the option is present but invalid
+     */
+    String lookup(String key, Character flag, boolean bool);
+}
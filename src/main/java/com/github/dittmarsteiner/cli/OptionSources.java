@@ -0,0 +1,101 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.Map;
+
+/**
+ * The built-in {@link OptionSource}s. The order of {@link OptionsResolver}
+ * is {@link #env()}, {@link #properties()}, then {@link ParsedArgs}.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class OptionSources {
+
+    private static final OptionSource ENV = new Counted() {
+        @Override
+        public String lookup(String key, Character flag, boolean bool) {
+            return OptionsResolver.env(key, flag);
+        }
+
+        @Override
+        public String toString() {
+            return "env";
+        }
+    };
+
+    private static final OptionSource PROPERTIES = new Counted() {
+        @Override
+        public String lookup(String key, Character flag, boolean bool) {
+            return OptionsResolver.property(key, flag);
+        }
+
+        @Override
+        public String toString() {
+            return "properties";
+        }
+    };
+
+    private OptionSources() {
+    }
+
+    /**
+     * @return <code>System.getenv(key)</code>, or the
+     *         {@link EnvironmentSnapshot} if enabled
+     */
+    public static OptionSource env() {
+        return ENV;
+    }
+
+    /**
+     * @return <code>System.getProperty(key)</code>, or the
+     *         {@link EnvironmentSnapshot} if enabled
+     */
+    public static OptionSource properties() {
+        return PROPERTIES;
+    }
+
+    /**
+     * @param args
+     *            a list with 0..n entries or from e.g.
+     *            <code>public static void main(<b>String[] args</b>)</code>
+     * @return named arguments and flags
+     */
+    public static OptionSource args(String... args) {
+        return ParsedArgs.parse(args);
+    }
+
+    /**
+     * @param values
+     *            values by case-sensitive key, copied, e.g. per-tenant
+     *            overrides
+     * @return the values of the map, by key only
+     */
+    public static OptionSource map(Map<String, String> values) {
+        StringTable table = new StringTable(values);
+        return (key, flag, bool) -> table.get(key);
+    }
+
+    /**
+     * The built-in sources, which count themselves in
+     * {@link ResolverMetrics}.
+     */
+    interface Counted extends OptionSource {
+    }
+}
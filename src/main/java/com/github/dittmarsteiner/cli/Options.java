@@ -0,0 +1,180 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Supplier;
+
+/**
+ * Factory of lazy, memoized {@link Option}s, e.g. for static fields:
+ * 
+ * <pre>
+ * static final Option&lt;Integer&gt; PORT = Options.lazy(8080, "PORT", 'p', args);
+ * static final Option&lt;Path&gt; HOME = Options.lazy(Path.class,
+ *         () -&gt; expensiveDefault(), "HOME", 'h', args);
+ * ...
+ * int port = PORT.get();
+ * </pre>
+ * 
+ * The first {@link Option#get()} resolves the option like
+ * {@link OptionsResolver} and publishes the value once and for all; later
+ * calls only read a field.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class Options {
+
+    private Options() {
+    }
+
+    /**
+     * @see OptionsResolver#resolve(Object, String, Character, String...)
+     */
+    public static <T> Option<T> lazy(T defaultValue, String key,
+            Character flag, String... args) {
+        return lazy(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see OptionsResolver#resolve(Object, String, Character, ParsedArgs)
+     */
+    public static <T> Option<T> lazy(T defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        return new LazyOption<T>(key, flag) {
+            @Override
+            T resolve() {
+                return OptionsResolver.resolve(defaultValue, key, flag, args);
+            }
+        };
+    }
+
+    /**
+     * Same as {@link #lazy(Object, String, Character, String...)}, but the
+     * default value is only computed if the option is not found.
+     * 
+     * @param type
+     *            the type of the value, see {@link Converters#forType(Class)}
+     * @param defaultValue
+     *            computes the default value
+     */
+    public static <T> Option<T> lazy(Class<T> type,
+            Supplier<? extends T> defaultValue, String key, Character flag,
+            String... args) {
+        return lazy(type, defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #lazy(Object, String, Character, ParsedArgs)}, but the
+     * default value is only computed if the option is not found.
+     * 
+     * @param type
+     *            the type of the value, see {@link Converters#forType(Class)}
+     * @param defaultValue
+     *            computes the default value
+     */
+    public static <T> Option<T> lazy(Class<T> type,
+            Supplier<? extends T> defaultValue, String key, Character flag,
+            ParsedArgs args) {
+        if (type == null || defaultValue == null) {
+            throw new NullPointerException("type and defaultValue are required");
+        }
+
+        return new LazyOption<T>(key, flag) {
+            @Override
+            T resolve() {
+                String value = OptionsResolver.lookup(key, flag,
+                        type == Boolean.class, args);
+                if (value == null) {
+                    return defaultValue.get();
+                }
+
+                return OptionsResolver.convert(Converters.forType(type),
+                        value, key, flag);
+            }
+        };
+    }
+
+    /**
+     * Resolves once and publishes a {@link Value} holder. Its final field
+     * makes the plain read of {@link #cached} safe; {@link #published} is set
+     * at most once, so all threads see the same value.
+     */
+    private abstract static class LazyOption<T> implements Option<T> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<LazyOption, Value> updater =
+                AtomicReferenceFieldUpdater.newUpdater(LazyOption.class,
+                        Value.class, "published");
+
+        private final String key;
+        private final Character flag;
+
+        private Value<T> cached;
+        private volatile Value<T> published;
+
+        LazyOption(String key, Character flag) {
+            this.key = key;
+            this.flag = flag;
+        }
+
+        abstract T resolve();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get() {
+            Value<T> value = cached;
+            if (value == null) {
+                value = published;
+                if (value == null) {
+                    Value<T> resolved = new Value<>(resolve());
+                    value = updater.compareAndSet(this, null, resolved)
+                            ? resolved : published;
+                }
+                cached = value;
+            }
+
+            return value.value;
+        }
+
+        @Override
+        public String key() {
+            return key;
+        }
+
+        @Override
+        public Character flag() {
+            return flag;
+        }
+
+        @Override
+        public String toString() {
+            Value<T> value = published;
+            return String.format("Option[--%s resp. -%s = %s]", key, flag,
+                    value != null ? value.value : "?");
+        }
+    }
+
+    private static final class Value<T> {
+        final T value;
+
+        Value(T value) {
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.CRC32;
+
+/**
+ * Persists {@link ResolvedOptions} in a compact binary file, so that forked
+ * processes need not resolve the same options again:
+ * 
+ * <pre>
+ * // coordinator
+ * OptionsFile.write(schema, Paths.get("options.bin"), args);
+ * 
+ * // worker
+ * ResolvedOptions options = OptionsFile.read(schema, Paths.get("options.bin"), args);
+ * </pre>
+ * 
+ * A worker maps the file read-only and checks it once, each value is read
+ * on demand from the mapped file and then kept: <code>int</code>,
+ * <code>long</code>, <code>double</code>, <code>boolean</code> and
+ * <code>String</code> options are stored binary, all other types as their
+ * {@link Object#toString()}, which is converted again on read and therefore
+ * has to round-trip.
+ * <p>
+ * If the file is missing, corrupt (CRC32), was written for another schema
+ * (keys, flags, types and defaults) or from other inputs (the System env
+ * variables and properties of the options, and the arguments),
+ * {@link #read(OptionSchema, Path, ParsedArgs)} resolves the options as
+ * {@link OptionSchema#resolve(ParsedArgs)} does. So the workers have to pass
+ * the same arguments as the coordinator.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class OptionsFile {
+
+    private static final int MAGIC = 0x4f505453; // "OPTS"
+    private static final int VERSION = 2;
+
+    /** magic, version, fingerprint, inputs, count, checksum, payload size */
+    static final int HEADER = 4 + 4 + 8 + 8 + 4 + 4 + 4;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte STRING = 5;
+    private static final byte OTHER = 6;
+
+    private OptionsFile() {
+    }
+
+    /**
+     * @param args
+     *            <code>public static void main(<b>String[] args</b>)</code>
+     * @see #write(OptionSchema, Path, ParsedArgs)
+     */
+    public static ResolvedOptions write(OptionSchema schema, Path file,
+            String... args) throws IOException {
+        return write(schema, file, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Resolves the options and writes all values to a temporary file, which
+     * then replaces the file atomically if possible, so that readers never
+     * see a partial file.
+     * 
+     * @return the resolved options
+     * @throws IOException
+     *             if the file cannot be written
+     * @throws IllegalArgumentException
+     *             if a value does not round-trip through its
+     *             <code>toString()</code>
+     */
+    public static ResolvedOptions write(OptionSchema schema, Path file,
+            ParsedArgs args) throws IOException {
+        ResolvedOptions options = schema.resolve(args);
+        write(options, schema.inputs(args), file);
+        return options;
+    }
+
+    private static void write(ResolvedOptions options, long inputs, Path file)
+            throws IOException {
+        OptionSchema schema = options.schema();
+        int count = schema.size();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * count);
+        DataOutputStream out = new DataOutputStream(bytes);
+        int[] offsets = new int[count];
+        int start = 4 * count;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = start + out.size();
+            write(schema, i, options.get(i), out);
+        }
+        out.flush();
+
+        ByteBuffer payload = ByteBuffer.allocate(start + bytes.size());
+        for (int offset : offsets) {
+            payload.putInt(offset);
+        }
+        payload.put(bytes.toByteArray());
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        header.putInt(MAGIC).putInt(VERSION).putLong(schema.fingerprint())
+                .putLong(inputs).putInt(count).putInt((int) crc.getValue())
+                .putInt(payload.capacity());
+
+        // not createTempFile(), which is only readable by its owner
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(String.format("%s.%x.tmp",
+                absolute.getFileName(), ThreadLocalRandom.current()
+                        .nextLong()));
+        try {
+            byte[] data = Arrays.copyOf(header.array(), HEADER
+                    + payload.capacity());
+            System.arraycopy(payload.array(), 0, data, HEADER,
+                    payload.capacity());
+            Files.write(temp, data, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE);
+            try {
+                Files.move(temp, absolute, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (IOException e) {
+                Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void write(OptionSchema schema, int index, Object value,
+            DataOutputStream out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        }
+        else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        }
+        else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        }
+        else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        }
+        else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        }
+        else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString((String) value, out);
+        }
+        else {
+            String string = value.toString();
+            if (!value.equals(schema.convert(index, string))) {
+                throw new IllegalArgumentException(String.format(
+                        "Value of %s does not round-trip: %s",
+                        schema.key(index), string));
+            }
+            out.writeByte(OTHER);
+            writeString(string, out);
+        }
+    }
+
+    private static void writeString(String value, DataOutputStream out)
+            throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    /**
+     * @param args
+     *            <code>public static void main(<b>String[] args</b>)</code>
+     * @see #read(OptionSchema, Path, ParsedArgs)
+     */
+    public static ResolvedOptions read(OptionSchema schema, Path file,
+            String... args) {
+        return read(schema, file, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @return the options of the file, or resolved if the file is missing,
+     *         corrupt, of another schema or from other inputs
+     */
+    public static ResolvedOptions read(OptionSchema schema, Path file,
+            ParsedArgs args) {
+        ResolvedOptions options = readOrNull(schema, file, args);
+        return options != null ? options : schema.resolve(args);
+    }
+
+    private static ResolvedOptions readOrNull(OptionSchema schema, Path file,
+            ParsedArgs args) {
+        try {
+            return map(schema, file, args);
+        }
+        catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the mapped options, null if the file is corrupt, of another
+     *         schema or from other inputs
+     * @throws NoSuchFileException
+     *             if the file is missing
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    static ResolvedOptions map(OptionSchema schema, Path file,
+            ParsedArgs args) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER || size > Integer.MAX_VALUE) {
+                return null;
+            }
+            // stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int count = schema.size();
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                || buffer.getLong(8) != schema.fingerprint()
+                || buffer.getLong(16) != schema.inputs(args)
+                || buffer.getInt(24) != count
+                || buffer.getInt(32) != buffer.capacity() - HEADER) {
+            return null;
+        }
+
+        ByteBuffer payload = slice(buffer, HEADER, buffer.capacity() - HEADER);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(28)) {
+            return null;
+        }
+
+        return new ResolvedOptions(schema, new Reader(schema, payload));
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int from, int length) {
+        ByteBuffer view = buffer.duplicate();
+        ((Buffer) view).position(from);
+        ((Buffer) view).limit(from + length);
+        return view.slice();
+    }
+
+    /**
+     * Reads single values of a checked payload, only with absolute gets.
+     */
+    static final class Reader {
+
+        private final OptionSchema schema;
+        private final ByteBuffer payload;
+
+        Reader(OptionSchema schema, ByteBuffer payload) {
+            this.schema = schema;
+            this.payload = payload;
+        }
+
+        Object read(int index) {
+            int offset = payload.getInt(4 * index);
+            switch (payload.get(offset)) {
+            case NULL:
+                return null;
+            case INT:
+                return payload.getInt(offset + 1);
+            case LONG:
+                return payload.getLong(offset + 1);
+            case DOUBLE:
+                return payload.getDouble(offset + 1);
+            case BOOLEAN:
+                return payload.get(offset + 1) != 0;
+            case STRING:
+                return readString(offset + 1);
+            case OTHER:
+                return schema.convert(index, readString(offset + 1));
+            default:
+                throw new IllegalStateException("Unknown type of "
+                        + schema.key(index));
+            }
+        }
+
+        private String readString(int offset) {
+            int length = payload.getInt(offset);
+            byte[] utf8 = new byte[length];
+            // a private view keeps concurrent reads apart
+            slice(payload, offset + 4, length).get(utf8);
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+    }
+}
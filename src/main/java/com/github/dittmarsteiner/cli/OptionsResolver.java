@@ -18,8 +18,17 @@
  */
 package com.github.dittmarsteiner.cli;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A command line helper for use in e.g.
@@ -34,21 +43,62 @@ import java.lang.reflect.InvocationTargetException;
  * <li>A <code>String[]</code> passed from e.g. <code>public static void
  * main(String[] args)</code>
  * </ol>
- * 
+ *
+ * <b>Threads</b>
+ * <p>
+ * All methods may be called concurrently from any number of platform or
+ * virtual threads without further synchronization:
+ * <ul>
+ * <li>A call keeps its state on the stack. The
+ * {@link ParsedArgs#parse(String...)} cache is per thread. The shared
+ * state, i.e. named argument keys, {@link Converters},
+ * {@link EnvironmentSnapshot} and {@link ResolverMetrics}, is immutable,
+ * <code>volatile</code> or concurrent. {@link ParsedArgs}, {@link OptionSchema},
+ * {@link ResolvedOptions} and {@link Result} are immutable and may be
+ * shared, values of an {@link OptionsFile} are read once and published
+ * atomically.
+ * <li>Each option is looked up once per call. A concurrent
+ * <code>System.setProperty(...)</code> is seen either completely or not at
+ * all, never as a mix of the old and new value. Two options of one
+ * {@link OptionSchema#resolve(String...)}, or two calls, may see different
+ * states, though. An {@link EnvironmentSnapshot} is replaced atomically and
+ * does not see any changes until {@link EnvironmentSnapshot#refresh()}.
+ * <li>{@link ResolverMetrics} lose no counts, but a count read during
+ * resolution may already be outdated.
+ * <li>An <code>args</code> array must not be modified during a call.
+ * </ul>
+ *
  * For more code examples, please see OptionsResolverTest
  * 
  * @version 1.0
  * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
  */
 public class OptionsResolver {
-    
+
+    /** named program arguments by key, see {@link #longName(String)} */
+    private static final ConcurrentMap<String, String> longNames =
+            new ConcurrentHashMap<>();
+
+    /** see {@link #disableStackTraces()} */
+    static volatile boolean stackTraces = true;
+
+    /** the cause of any {@link MissingArgumentException} without stack traces */
+    private static final ArrayIndexOutOfBoundsException NO_ARGUMENT =
+            stackless(new ArrayIndexOutOfBoundsException("No argument"));
+
+    /** the cause of any {@link NotANumberException} without stack traces */
+    static final NumberFormatException NOT_A_NUMBER = stackless(
+            new NumberFormatException("Not a number"));
+
     /**
      * 
      * @param defaultValue
      *            Defines also the return type. Works fine with {@link Long},
      *            {@link Integer}, {@link Double}, {@link Float},
-     *            {@link Boolean} and {@link String}, and any classes with a
+     *            {@link Boolean} and {@link String}, any classes with a
      *            constructor <code><i>&lt;Type&gt;</i>(String value)</code>
+     *            and any types registered with
+     *            {@link Converters#register(Class, Converter)}
      * @param key
      *            Case-sensitive for System env or System property, but made
      *            lower case for program argument like <code>args[]</code>
@@ -63,91 +113,983 @@ public class OptionsResolver {
      */
     public static <T> T resolve(T defaultValue, String key, Character flag,
             String... args) {
-        // System env, property
-        if (key != null) {
-            String[] values = { System.getenv(key), System.getProperty(key) };
+        return resolve(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)}, but
+     * looks up the program arguments in an index built once by
+     * {@link ParsedArgs#parse(String...)}. Use this when resolving many
+     * options against the same arguments.
+     * 
+     * @param defaultValue
+     *            Defines also the return type, see
+     *            {@link #resolve(Object, String, Character, String...)}
+     * @param key
+     *            Case-sensitive for System env or System property, but made
+     *            lower case for program argument like <code>args[]</code>
+     * @param flag
+     *            a single character, case sensitive
+     * @param args
+     *            the parsed program arguments, may be <code>null</code>
+     * @return the resolved value if found, else the <code>defaultValue</code>
+     */
+    public static <T> T resolve(T defaultValue, String key, Character flag,
+            ParsedArgs args) {
+        String value = lookup(key, flag, defaultValue instanceof Boolean, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        long start = ResolverMetrics.start();
+        try {
+            return getValue(value, defaultValue, key, flag);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)}, but
+     * with an explicit type, so the <code>defaultValue</code> may be
+     * <code>null</code>.
+     * 
+     * @param type
+     *            the type of the value, see {@link Converters#forType(Class)}
+     * @param defaultValue
+     *            may be <code>null</code>
+     * @param key
+     *            Case-sensitive for System env or System property, but made
+     *            lower case for program argument like <code>args[]</code>
+     * @param flag
+     *            a single character, case sensitive
+     * @param args
+     *            the parsed program arguments, may be <code>null</code>
+     * @return the resolved value if found, else the <code>defaultValue</code>
+     */
+    public static <T> T resolve(Class<T> type, T defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        return resolve(Converters.forType(type), type == Boolean.class,
+                defaultValue, key, flag, args);
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)}, but
+     * with an explicit converter, e.g. <code>URI::create</code>. The option
+     * always takes a value, also in program arguments.
+     * 
+     * @param converter
+     *            converts the value
+     * @param defaultValue
+     *            may be <code>null</code>
+     * @param key
+     *            Case-sensitive for System env or System property, but made
+     *            lower case for program argument like <code>args[]</code>
+     * @param flag
+     *            a single character, case sensitive
+     * @param args
+     *            the parsed program arguments, may be <code>null</code>
+     * @return the resolved value if found, else the <code>defaultValue</code>
+     */
+    public static <T> T resolve(Converter<? extends T> converter,
+            T defaultValue, String key, Character flag, ParsedArgs args) {
+        return resolve(converter, false, defaultValue, key, flag, args);
+    }
+
+    private static <T> T resolve(Converter<? extends T> converter,
+            boolean bool, T defaultValue, String key, Character flag,
+            ParsedArgs args) {
+        String value = lookup(key, flag, bool, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return convert(converter, value, key, flag);
+    }
+
+    /**
+     * Resolves every occurrence of an option which takes a value: the System
+     * env, the System property and then all named arguments and flags in the
+     * order of the arguments, e.g. <code>-i a --input b</code>.
+     * 
+     * @return the raw values, empty if there are none
+     * @throws MissingArgumentException
+     *             if an argument is not followed by its value
+     */
+    public static List<String> resolveAll(String key, Character flag,
+            String... args) {
+        return resolveAll(key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see #resolveAll(String, Character, String...)
+     */
+    public static List<String> resolveAll(String key, Character flag,
+            ParsedArgs args) {
+        return Collections.unmodifiableList(lookupAll(key, flag, args));
+    }
+
+    /**
+     * Same as {@link #resolveAll(String, Character, String...)}, but splits
+     * each value at <code>delimiter</code>, e.g.
+     * <code>--ports 80,443 -p 8080</code>, and converts each element, with
+     * white space around it trimmed.
+     * 
+     * @param type
+     *            the type of the elements, see
+     *            {@link Converters#forType(Class)}
+     * @param delimiter
+     *            e.g. <code>','</code>
+     * @return the elements, empty if there are none
+     * @throws NotANumberException
+     *             if an element is not a number
+     */
+    public static <T> List<T> resolveList(Class<T> type, String key,
+            Character flag, char delimiter, String... args) {
+        return resolveList(type, key, flag, delimiter, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see #resolveList(Class, String, Character, char, String...)
+     */
+    public static <T> List<T> resolveList(Class<T> type, String key,
+            Character flag, char delimiter, ParsedArgs args) {
+        Converter<? extends T> converter = Converters.forType(type);
+        List<T> list = new ArrayList<>();
+        for (String value : lookupAll(key, flag, args)) {
+            if (value.isEmpty()) {
+                continue;
+            }
+            for (int from = 0, to = -1; to < value.length(); from = to + 1) {
+                to = end(value, from, delimiter);
+                list.add(convert(converter, value.substring(from, to).trim(),
+                        key, flag));
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Same as {@link #resolveList(Class, String, Character, char, String...)}
+     * for <code>int</code> elements, parsed from the values without
+     * substrings or boxing.
+     * 
+     * @throws NotANumberException
+     *             if an element is not an <code>int</code>
+     */
+    public static int[] resolveInts(String key, Character flag,
+            char delimiter, String... args) {
+        return resolveInts(key, flag, delimiter, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see #resolveInts(String, Character, char, String...)
+     */
+    public static int[] resolveInts(String key, Character flag,
+            char delimiter, ParsedArgs args) {
+        List<String> values = lookupAll(key, flag, args);
+        int[] ints = new int[count(values, delimiter)];
+        int i = 0;
+
+        long start = ResolverMetrics.start();
+        try {
             for (String value : values) {
-                if (value != null) {
-                    try {
-                        return getValue(value, defaultValue);
-                    }
-                    catch (NumberFormatException e) {
-                        throw new NotANumberException(key, flag, e);
-                    }
+                if (value.isEmpty()) {
+                    continue;
+                }
+                for (int from = 0, to = -1; to < value.length();
+                        from = to + 1) {
+                    to = end(value, from, delimiter);
+                    ints[i++] = (int) Numbers.parseLong(value, from, to,
+                            Integer.MIN_VALUE, Integer.MAX_VALUE);
                 }
             }
         }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
 
-        // named argument
-        if (key != null && args != null) {
-            String n = String.format("--%s", key.replaceFirst("$\\-{1,2}", "")
-                    .toLowerCase());
-            for (int i = 0; i < args.length; i++) {
-                if (n.equals(args[i])) {
-                    try {
-                        return getValue(args, i, defaultValue);
-                    }
-                    catch (ArrayIndexOutOfBoundsException e) {
-                        throw new MissingArgumentException(key, flag, e);
-                    }
-                    catch (NumberFormatException e) {
-                        throw new NotANumberException(key, flag, e);
-                    }
+        return ints;
+    }
+
+    /**
+     * Same as {@link #resolveList(Class, String, Character, char, String...)}
+     * for <code>long</code> elements, parsed from the values without
+     * substrings or boxing.
+     * 
+     * @throws NotANumberException
+     *             if an element is not a <code>long</code>
+     */
+    public static long[] resolveLongs(String key, Character flag,
+            char delimiter, String... args) {
+        return resolveLongs(key, flag, delimiter, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see #resolveLongs(String, Character, char, String...)
+     */
+    public static long[] resolveLongs(String key, Character flag,
+            char delimiter, ParsedArgs args) {
+        List<String> values = lookupAll(key, flag, args);
+        long[] longs = new long[count(values, delimiter)];
+        int i = 0;
+
+        long start = ResolverMetrics.start();
+        try {
+            for (String value : values) {
+                if (value.isEmpty()) {
+                    continue;
+                }
+                for (int from = 0, to = -1; to < value.length();
+                        from = to + 1) {
+                    to = end(value, from, delimiter);
+                    longs[i++] = Numbers.parseLong(value, from, to,
+                            Long.MIN_VALUE, Long.MAX_VALUE);
                 }
             }
         }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
 
-        // flag (boolean)
-        if (args != null && flag != null &&
-                (Character.isLetter(flag) || Character.isDigit(flag))) {
-            String f = new String(new char[] { flag });
-            for (int i = 0; i < args.length; i++) {
-                String arg = args[i];
-                boolean match = (defaultValue instanceof Boolean) ? arg
-                        .contains(f) : arg.endsWith(f);
-
-                if (arg.startsWith("-") && !arg.startsWith("--")
-                        && match) {
-                    try {
-                        return getValue(args, i, defaultValue);
-                    }
-                    catch (ArrayIndexOutOfBoundsException e) {
-                        throw new MissingArgumentException(key, flag, e);
-                    }
-                    catch (NumberFormatException e) {
-                        throw new NotANumberException(key, flag, e);
-                    }
+        return longs;
+    }
+
+    /**
+     * Same as {@link #resolveList(Class, String, Character, char, String...)}
+     * for <code>double</code> elements, parsed from the values without
+     * boxing and, for up to 15 digits, without substrings.
+     * 
+     * @throws NotANumberException
+     *             if an element is not a <code>double</code>
+     */
+    public static double[] resolveDoubles(String key, Character flag,
+            char delimiter, String... args) {
+        return resolveDoubles(key, flag, delimiter, ParsedArgs.parse(args));
+    }
+
+    /**
+     * @see #resolveDoubles(String, Character, char, String...)
+     */
+    public static double[] resolveDoubles(String key, Character flag,
+            char delimiter, ParsedArgs args) {
+        List<String> values = lookupAll(key, flag, args);
+        double[] doubles = new double[count(values, delimiter)];
+        int i = 0;
+
+        long start = ResolverMetrics.start();
+        try {
+            for (String value : values) {
+                if (value.isEmpty()) {
+                    continue;
+                }
+                for (int from = 0, to = -1; to < value.length();
+                        from = to + 1) {
+                    to = end(value, from, delimiter);
+                    doubles[i++] = Numbers.parseDouble(value, from, to);
                 }
             }
         }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
 
-        return defaultValue;
+        return doubles;
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T getValue(String[] args, int index, T defaultValue) {
-        if (defaultValue instanceof Boolean) {
-            return (T) Boolean.TRUE;
+    /**
+     * Resolves all options with a common prefix from the System env and
+     * properties, e.g. all <code>APP_DB_*</code> variables. The keys are the
+     * rest after the prefix, e.g. <code>HOST</code> for
+     * <code>APP_DB_HOST</code>, and the System env wins over a property with
+     * the same key.
+     * <p>
+     * With an {@link EnvironmentSnapshot} enabled, the keys are found by a
+     * binary search in its sorted keys, so the cost depends on the number of
+     * matches only. Without, the System properties and env are scanned
+     * once per call.
+     * 
+     * @param prefix
+     *            case-sensitive, e.g. <code>APP_DB_</code> or
+     *            <code>app.db.</code>
+     * @return the raw values, ordered by key
+     */
+    public static Map<String, String> resolvePrefix(String prefix) {
+        Map<String, String> values = new TreeMap<>();
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.current();
+        // the env first, it wins and is the only one recorded
+        if (snapshot != null) {
+            putPrefixed(values, snapshot.getenvByPrefix(prefix), prefix,
+                    Origin.ENV);
+            putPrefixed(values, snapshot.getPropertiesByPrefix(prefix), prefix,
+                    Origin.PROPERTY);
+        }
+        else {
+            // a single scan, cheaper than capturing a snapshot
+            for (Map.Entry<String, String> entry : System.getenv()
+                    .entrySet()) {
+                putPrefixed(values, entry.getKey(), entry.getValue(), prefix,
+                        Origin.ENV);
+            }
+            Properties properties = System.getProperties();
+            for (String key : properties.stringPropertyNames()) {
+                putPrefixed(values, key, properties.getProperty(key), prefix,
+                        Origin.PROPERTY);
+            }
         }
 
-        return getValue(args[++index], defaultValue);
+        return Collections.unmodifiableMap(values);
     }
 
-    @SuppressWarnings("unchecked")
-    private static <T> T getValue(String value, T defaultValue) {
-        if (defaultValue != null) {
-            try {
-                Constructor<?> constructor = defaultValue
-                        .getClass().getConstructor(String.class);
-                return (T) constructor.newInstance(value);
+    /**
+     * Same as {@link #resolvePrefix(String)}, but converts the values.
+     * 
+     * @param type
+     *            the type of all values, see {@link Converters#forType(Class)}
+     * @throws NotANumberException
+     *             if a value is not a number
+     */
+    public static <T> Map<String, T> resolvePrefix(Class<T> type,
+            String prefix) {
+        Converter<? extends T> converter = Converters.forType(type);
+        Map<String, T> values = new TreeMap<>();
+        for (Map.Entry<String, String> entry : resolvePrefix(prefix)
+                .entrySet()) {
+            values.put(entry.getKey(), convert(converter, entry.getValue(),
+                    prefix + entry.getKey(), null));
+        }
+
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Sets the fields of <code>target</code> to the options of
+     * {@link #resolvePrefix(String)} with a matching name, ignoring case,
+     * <code>_</code>, <code>.</code> and <code>-</code>, e.g. the field
+     * <code>maxPoolSize</code> to <code>APP_DB_MAX_POOL_SIZE</code>. Other
+     * fields keep their values, static and final ones are skipped.
+     * 
+     * @return <code>target</code>
+     * @throws NotANumberException
+     *             if a value is not a number
+     * @throws IllegalArgumentException
+     *             if a field cannot be set
+     */
+    public static <T> T bindPrefix(T target, String prefix) {
+        Map<String, String> keys = new HashMap<>();
+        Map<String, String> values = resolvePrefix(prefix);
+        for (String key : values.keySet()) {
+            keys.put(normalize(key), key);
+        }
+
+        for (Class<?> type = target.getClass(); type != Object.class; type =
+                type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                String key = keys.get(normalize(field.getName()));
+                if (key == null || field.isSynthetic() ||
+                        Modifier.isStatic(modifiers) ||
+                        Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+
+                Object value = convert(Converters.forType(boxed(field
+                        .getType())), values.get(key), prefix + key, null);
+                try {
+                    field.setAccessible(true);
+                    field.set(target, value);
+                }
+                catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalArgumentException(String.format(
+                            "Cannot set %s to %s", field, prefix + key), e);
+                }
             }
-            catch (NoSuchMethodException | SecurityException
-                    | InstantiationException | IllegalAccessException
-                    | IllegalArgumentException | InvocationTargetException e) {
-                throw new StringConstructorException(defaultValue, value, e);
+        }
+
+        return target;
+    }
+
+    private static void putPrefixed(Map<String, String> values,
+            Map<String, String> found, String prefix, Origin origin) {
+        for (Map.Entry<String, String> entry : found.entrySet()) {
+            putPrefixed(values, entry.getKey(), entry.getValue(), prefix,
+                    origin);
+        }
+    }
+
+    private static void putPrefixed(Map<String, String> values, String key,
+            String value, String prefix, Origin origin) {
+        if (value != null && key.startsWith(prefix)) {
+            String rest = key.substring(prefix.length());
+            if (!values.containsKey(rest)) {
+                values.put(rest, found(origin, key, null, value));
+            }
+        }
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_' && c != '.' && c != '-') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+
+        return normalized.toString();
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+
+        return Character.class;
+    }
+
+    /**
+     * @return the number of elements in all <code>values</code>, none in an
+     *         empty value
+     */
+    private static int count(List<String> values, char delimiter) {
+        int count = 0;
+        for (String value : values) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == delimiter) {
+                    count++;
+                }
+            }
+            if (!value.isEmpty()) {
+                count++;
             }
         }
 
+        return count;
+    }
+
+    /**
+     * @return the index of the next <code>delimiter</code> from
+     *         <code>from</code> or the length of <code>value</code>
+     */
+    private static int end(String value, int from, char delimiter) {
+        int end = value.indexOf(delimiter, from);
+        return end >= 0 ? end : value.length();
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)}, but
+     * returns an invalid option as a failed {@link Result} instead of
+     * throwing an exception.
+     */
+    public static <T> Result<T> tryResolve(T defaultValue, String key,
+            Character flag, String... args) {
+        return tryResolve(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)}, but
+     * returns an invalid option as a failed {@link Result} instead of
+     * throwing an exception. Numbers of the built-in types are checked
+     * before they are converted, so a failure costs no exception at all.
+     */
+    public static <T> Result<T> tryResolve(T defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        @SuppressWarnings("unchecked")
+        Class<T> type = defaultValue != null ? (Class<T>) defaultValue
+                .getClass() : null;
+        return tryResolve(type, defaultValue, key, flag, args);
+    }
+
+    /**
+     * Same as {@link #resolve(Class, Object, String, Character, ParsedArgs)},
+     * but returns an invalid option as a failed {@link Result} instead of
+     * throwing an exception. Any other <code>RuntimeException</code> of a
+     * registered {@link Converter} fails as
+     * {@link Result.ErrorCode#STRING_CONSTRUCTOR}.
+     */
+    public static <T> Result<T> tryResolve(Class<T> type, T defaultValue,
+            String key, Character flag, ParsedArgs args) {
+        String value = find(key, key != null ? longName(key) : null, flag,
+                type == Boolean.class, args);
+        if (value == ParsedArgs.MISSING) {
+            return Result.failed(Result.ErrorCode.MISSING_ARGUMENT, key, flag,
+                    null, type, null);
+        }
+        if (value == null || type == null) {
+            return Result.ok(value == null ? defaultValue : null);
+        }
+        Converter<T> converter = Converters.forType(type);
+        if (Converters.builtInType(converter) == type
+                && !Numbers.isValid(type, value)) {
+            return Result.failed(Result.ErrorCode.NOT_A_NUMBER, key, flag, value,
+                    type, null);
+        }
+
+        long start = ResolverMetrics.start();
+        try {
+            return Result.ok(converter.convert(value));
+        }
+        catch (NumberFormatException e) {
+            return Result.failed(Result.ErrorCode.NOT_A_NUMBER, key, flag, value,
+                    type, e);
+        }
+        catch (StringConstructorException e) {
+            // already recorded by the exception
+            return Result.recorded(Result.ErrorCode.STRING_CONSTRUCTOR, key,
+                    flag, value, type, e.getCause());
+        }
+        catch (RuntimeException e) {
+            // e.g. a DateTimeParseException of a registered converter
+            return Result.failed(Result.ErrorCode.STRING_CONSTRUCTOR, key, flag,
+                    value, type, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Makes all {@link OptionsException}s skip filling in their stack trace,
+     * which is most of their cost. Use this when failures are expected and
+     * handled, e.g. when validating many configurations. Their causes are
+     * shared instances without stack trace, too, and numbers of the built-in
+     * types are checked before they are parsed.
+     */
+    public static void disableStackTraces() {
+        stackTraces = false;
+    }
+
+    /**
+     * Makes {@link OptionsException}s fill in their stack trace again, the
+     * default.
+     */
+    public static void enableStackTraces() {
+        stackTraces = true;
+    }
+
+    /**
+     * @return the converted <code>value</code>
+     * @throws NotANumberException
+     *             if the converter throws a {@link NumberFormatException}
+     */
+    static <T> T convert(Converter<? extends T> converter, String value,
+            String key, Character flag) {
+        long start = ResolverMetrics.start();
+        try {
+            checkNumber(converter, value, key, flag);
+            return converter.convert(value);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)} for an
+     * <code>int</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not an <code>int</code>
+     */
+    public static int resolveInt(int defaultValue, String key,
+            Character flag, String... args) {
+        return resolveInt(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)} for an
+     * <code>int</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not an <code>int</code>
+     */
+    public static int resolveInt(int defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        String value = lookup(key, flag, false, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return toInt(value, key, flag);
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)} for a
+     * <code>long</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not a <code>long</code>
+     */
+    public static long resolveLong(long defaultValue, String key,
+            Character flag, String... args) {
+        return resolveLong(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)} for a
+     * <code>long</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not a <code>long</code>
+     */
+    public static long resolveLong(long defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        String value = lookup(key, flag, false, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return toLong(value, key, flag);
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)} for a
+     * <code>double</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not a <code>double</code>
+     */
+    public static double resolveDouble(double defaultValue, String key,
+            Character flag, String... args) {
+        return resolveDouble(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)} for a
+     * <code>double</code>, but without boxing.
+     * 
+     * @throws NotANumberException
+     *             if the value is not a <code>double</code>
+     */
+    public static double resolveDouble(double defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        String value = lookup(key, flag, false, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return toDouble(value, key, flag);
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, String...)} for a
+     * <code>boolean</code>, but without boxing.
+     */
+    public static boolean resolveBoolean(boolean defaultValue, String key,
+            Character flag, String... args) {
+        return resolveBoolean(defaultValue, key, flag, ParsedArgs.parse(args));
+    }
+
+    /**
+     * Same as {@link #resolve(Object, String, Character, ParsedArgs)} for a
+     * <code>boolean</code>, but without boxing.
+     */
+    public static boolean resolveBoolean(boolean defaultValue, String key,
+            Character flag, ParsedArgs args) {
+        String value = lookup(key, flag, true, args);
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return toBoolean(value);
+    }
+
+    /**
+     * @throws NotANumberException
+     *             if the value is not an <code>int</code>
+     */
+    static int toInt(String value, String key, Character flag) {
+        long start = ResolverMetrics.start();
+        try {
+            checkNumber(Integer.class, value, key, flag);
+            return Integer.parseInt(value);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * @throws NotANumberException
+     *             if the value is not a <code>long</code>
+     */
+    static long toLong(String value, String key, Character flag) {
+        long start = ResolverMetrics.start();
+        try {
+            checkNumber(Long.class, value, key, flag);
+            return Long.parseLong(value);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * @throws NotANumberException
+     *             if the value is not a <code>double</code>
+     */
+    static double toDouble(String value, String key, Character flag) {
+        long start = ResolverMetrics.start();
+        try {
+            checkNumber(Double.class, value, key, flag);
+            return Double.parseDouble(value);
+        }
+        catch (NumberFormatException e) {
+            throw new NotANumberException(key, flag, e);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Checks a number before a built-in converter fails with a stack trace,
+     * only if {@link #disableStackTraces()}.
+     * 
+     * @throws NotANumberException
+     *             if <code>value</code> is certainly not valid
+     */
+    static void checkNumber(Converter<?> converter, String value, String key,
+            Character flag) {
+        if (!stackTraces) {
+            Class<?> type = Converters.builtInType(converter);
+            if (type != null) {
+                checkNumber(type, value, key, flag);
+            }
+        }
+    }
+
+    /**
+     * @see #checkNumber(Converter, String, String, Character)
+     */
+    static void checkNumber(Class<?> type, String value, String key,
+            Character flag) {
+        if (!stackTraces && !Numbers.isValid(type, value)) {
+            throw new NotANumberException(key, flag, NOT_A_NUMBER);
+        }
+    }
+
+    /**
+     * @return the cause of a {@link MissingArgumentException}, shared and
+     *         without stack trace if {@link #disableStackTraces()}
+     */
+    static ArrayIndexOutOfBoundsException noArgument(int index) {
+        return stackTraces ? new ArrayIndexOutOfBoundsException(index)
+                : NO_ARGUMENT;
+    }
+
+    private static <E extends Throwable> E stackless(E e) {
+        e.setStackTrace(new StackTraceElement[0]);
+        return e;
+    }
+
+    static boolean toBoolean(String value) {
+        long start = ResolverMetrics.start();
+        try {
+            return Boolean.parseBoolean(value);
+        }
+        finally {
+            ResolverMetrics.converted(start);
+        }
+    }
+
+    /**
+     * Finds the raw value of an option in the order System env, System
+     * property, named argument, flag.
+     * 
+     * @param bool
+     *            <code>true</code> for a {@link Boolean} option, which takes
+     *            no value in program arguments
+     * @return the value, <code>"true"</code> for a present {@link Boolean}
+     *         program argument or <code>null</code> if not found
+     * @throws MissingArgumentException
+     *             if a program argument is not followed by its value
+     */
+    static String lookup(String key, Character flag, boolean bool,
+            ParsedArgs args) {
+        return lookup(key, key != null ? longName(key) : null, flag, bool,
+                args);
+    }
+
+    /**
+     * Same as {@link #lookup(String, Character, boolean, ParsedArgs)} with a
+     * precomputed {@link #longName(String)}.
+     */
+    static String lookup(String key, String name, Character flag,
+            boolean bool, ParsedArgs args) {
+        String value = find(key, name, flag, bool, args);
+        if (value == ParsedArgs.MISSING) {
+            throw new MissingArgumentException(key, flag,
+                    noArgument(args.size()));
+        }
+
+        return value;
+    }
+
+    /**
+     * Same as {@link #lookup(String, String, Character, boolean, ParsedArgs)},
+     * but returns {@link ParsedArgs#MISSING} instead of throwing.
+     */
+    static String find(String key, String name, Character flag,
+            boolean bool, ParsedArgs args) {
+        // System env, property
+        String value = env(key, flag);
+        if (value == null) {
+            value = property(key, flag);
+        }
+
+        // named argument, flag (boolean)
+        if (value == null && args != null) {
+            value = args.find(key, name, flag, bool);
+        }
+
+        return value != null ? value : found(Origin.DEFAULT, key, flag, null);
+    }
+
+    /**
+     * @return the raw values of all occurrences, see
+     *         {@link #resolveAll(String, Character, String...)}
+     */
+    static List<String> lookupAll(String key, Character flag,
+            ParsedArgs args) {
+        List<String> values = new ArrayList<>(4);
+        String value = env(key, flag);
+        if (value != null) {
+            values.add(value);
+        }
+        value = property(key, flag);
+        if (value != null) {
+            values.add(value);
+        }
+        if (args != null) {
+            args.findAll(key, key != null ? longName(key) : null, flag, values);
+        }
+
+        if (values.isEmpty()) {
+            found(Origin.DEFAULT, key, flag, null);
+        }
+
+        return values;
+    }
+
+    /**
+     * @return <code>System.getenv(key)</code> or the same from the
+     *         {@link EnvironmentSnapshot}, <code>null</code> if
+     *         <code>key</code> is <code>null</code>
+     */
+    static String env(String key, Character flag) {
+        if (key == null) {
+            return null;
+        }
+
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.current();
+        String value = snapshot != null ? snapshot.getenv(key) : System
+                .getenv(key);
+        return value != null ? found(Origin.ENV, key, flag, value) : null;
+    }
+
+    /**
+     * @return <code>System.getProperty(key)</code> or the same from the
+     *         {@link EnvironmentSnapshot}, <code>null</code> if
+     *         <code>key</code> is <code>null</code>
+     */
+    static String property(String key, Character flag) {
+        if (key == null) {
+            return null;
+        }
+
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.current();
+        String value = snapshot != null ? snapshot.getProperty(key) : System
+                .getProperty(key);
+        return value != null ? found(Origin.PROPERTY, key, flag, value)
+                : null;
+    }
+
+    /**
+     * Records where an option was found, if {@link ResolverMetrics} are
+     * enabled.
+     * 
+     * @return <code>value</code>
+     */
+    static String found(Origin origin, String key, Character flag,
+            String value) {
+        if (ResolverMetrics.enabled) {
+            ResolverMetrics.resolved(origin, key, flag);
+        }
+
+        return value;
+    }
+
+    /**
+     * @param key
+     *            e.g. <code>PORT</code>
+     * @return the named program argument, e.g. <code>--port</code>
+     */
+    static String longName(String key) {
+        String name = longNames.get(key);
+        if (name == null) {
+            name = String.format("--%s", key.replaceFirst("$\\-{1,2}", "")
+                    .toLowerCase());
+            longNames.putIfAbsent(key, name);
+        }
+
+        return name;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T getValue(String value, T defaultValue, String key,
+            Character flag) {
+        if (defaultValue != null) {
+            Converter<?> converter = Converters.forType(defaultValue
+                    .getClass());
+            checkNumber(converter, value, key, flag);
+            return (T) converter.convert(value);
+        }
+
         return null;
     }
 
@@ -155,7 +1097,21 @@ public class OptionsResolver {
         private static final long serialVersionUID = -9131033143652565410L;
 
         OptionsException(String message, Throwable throwable) {
-            super(message, throwable);
+            this(message, throwable, true);
+        }
+
+        /**
+         * @param record
+         *            <code>false</code> for a failure already recorded in the
+         *            {@link ResolverMetrics}, see {@link Result#exception()}
+         */
+        OptionsException(String message, Throwable throwable,
+                boolean record) {
+            super(message, throwable, true, stackTraces);
+
+            if (record && ResolverMetrics.enabled) {
+                ResolverMetrics.failed(getClass(), message);
+            }
         }
     }
 
@@ -164,8 +1120,17 @@ public class OptionsResolver {
 
         public MissingArgumentException(String key, Character flag,
                 ArrayIndexOutOfBoundsException cause) {
-            super(String.format("Missing argument for --%s resp. -%s", key,
-                    flag), cause);
+            super(message(key, flag), cause);
+        }
+
+        MissingArgumentException(String key, Character flag,
+                ArrayIndexOutOfBoundsException cause, boolean record) {
+            super(message(key, flag), cause, record);
+        }
+
+        static String message(String key, Character flag) {
+            return String.format("Missing argument for --%s resp. -%s", key,
+                    flag);
         }
     }
 
@@ -174,8 +1139,17 @@ public class OptionsResolver {
 
         public NotANumberException(String key, Character flag,
                 NumberFormatException cause) {
-            super(String.format("Argument is not a number for --%s resp. -%s",
-                    key, flag), cause);
+            super(message(key, flag), cause);
+        }
+
+        NotANumberException(String key, Character flag,
+                NumberFormatException cause, boolean record) {
+            super(message(key, flag), cause, record);
+        }
+
+        static String message(String key, Character flag) {
+            return String.format("Argument is not a number for --%s resp. -%s",
+                    key, flag);
         }
     }
 
@@ -184,9 +1158,22 @@ public class OptionsResolver {
 
         public StringConstructorException(Object defaultValue, String value,
                                           Exception cause) {
-            super(String.format("Could not use 'new %s(\"%s\")': %s",
-                    defaultValue.getClass().getName(), value,
-                    cause.getMessage()), cause);
+            this(value, defaultValue.getClass(), cause);
+        }
+
+        StringConstructorException(String value, Class<?> type,
+                Throwable cause) {
+            super(message(value, type, cause), cause);
+        }
+
+        StringConstructorException(String value, Class<?> type,
+                Throwable cause, boolean record) {
+            super(message(value, type, cause), cause, record);
+        }
+
+        static String message(String value, Class<?> type, Throwable cause) {
+            return String.format("Could not use 'new %s(\"%s\")': %s",
+                    type.getName(), value, cause.getMessage());
         }
     }
 }
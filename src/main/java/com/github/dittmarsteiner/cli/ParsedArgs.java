@@ -0,0 +1,471 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+
+/**
+ * A program argument list like <code>String[] args</code>, tokenized once
+ * and indexed for repeated lookups by {@link OptionsResolver}.
+ * <p>
+ * Resolving many options against the same arguments should parse them once
+ * and pass the <code>ParsedArgs</code> instead of the <code>String[]</code>:
+ *
+ * <pre>
+ * ParsedArgs parsed = ParsedArgs.parse(args);
+ * Integer port = OptionsResolver.resolve(8080, "PORT", 'p', parsed);
+ * Boolean test = OptionsResolver.resolve(false, "TEST", 't', parsed);
+ * </pre>
+ *
+ * Each lookup is then a hash lookup instead of a scan of all arguments, with
+ * the same precedence and matching as
+ * {@link OptionsResolver#resolve(Object, String, Character, String...)}.
+ * <p>
+ * As an {@link OptionSource} it looks up named arguments and flags only.
+ * <p>
+ * Instances are immutable and thus safe to share between threads.
+ *
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class ParsedArgs implements OptionSource,
+        OptionSources.Counted {
+
+    /**
+     * Returned by {@link #find(String, String, Character, boolean)} for an
+     * argument not followed by its value, compare by identity.
+     */
+    static final String MISSING = new String("");
+
+    private static final ParsedArgs EMPTY = new ParsedArgs(new Indexer(0));
+
+    /** the arguments, may be longer than {@link #size} */
+    private final String[] args;
+    private final int size;
+
+    /** first index of each <code>--name</code> argument */
+    private final Map<String, Integer> names;
+
+    /** first index of a <code>-xyz</code> argument containing a flag */
+    private final FlagIndex flags;
+
+    /** first index of a <code>-xyz</code> argument ending with a flag */
+    private final FlagIndex lastFlags;
+
+    /**
+     * for each <code>--name</code> or <code>-xyz</code> argument the index of
+     * the next one with the same name resp. last flag, <code>0</code> if none
+     */
+    private final int[] next;
+
+    /**
+     * The arguments most recently parsed by each thread, reused by
+     * {@link #parse(String...)} for the same arguments. Per thread, so
+     * threads with arguments of their own neither evict each other's nor
+     * write to a shared field.
+     */
+    private static final ThreadLocal<ParsedArgs> last = ThreadLocal
+            .withInitial(() -> EMPTY);
+
+    private ParsedArgs(Indexer indexer) {
+        this.args = indexer.args;
+        this.size = indexer.size;
+        this.names = indexer.names;
+        this.flags = indexer.flags;
+        this.lastFlags = indexer.lastFlags;
+        this.next = indexer.next;
+    }
+
+    /**
+     * Parsing the same arguments again in the same thread, i.e. the same
+     * <code>String</code> instances in the same order, returns the previous
+     * result without parsing. Only the most recent arguments of each thread
+     * are kept, so keep and reuse the result, or an {@link OptionSchema},
+     * to resolve alternating arguments.
+     * 
+     * @param args
+     *            a list with 0..n entries or from e.g.
+     *            <code>public static void main(<b>String[] args</b>)</code>,
+     *            may be <code>null</code>
+     * @return the indexed arguments, never <code>null</code>
+     */
+    public static ParsedArgs parse(String... args) {
+        if (args == null || args.length == 0) {
+            return EMPTY;
+        }
+
+        ParsedArgs parsed = last.get();
+        if (parsed.same(args)) {
+            return parsed;
+        }
+
+        parsed = of(args);
+        last.set(parsed);
+        return parsed;
+    }
+
+    /**
+     * Same as {@link #parse(String...)}, but without caching the result,
+     * for one-off arguments. <code>args</code> are copied all the same.
+     */
+    static ParsedArgs of(String[] args) {
+        Indexer indexer = new Indexer(args.length);
+        for (String arg : args) {
+            indexer.add(arg);
+        }
+
+        return new ParsedArgs(indexer);
+    }
+
+    /**
+     * @param line
+     *            arguments in the syntax of an <code>@argfile</code>, see
+     *            {@link #expand(String...)}
+     * @throws IllegalArgumentException
+     *             if a quote is not closed
+     */
+    static ParsedArgs split(CharSequence line) {
+        Indexer indexer = new Indexer(16);
+        ArgFile.split(line, indexer);
+        return new ParsedArgs(indexer);
+    }
+
+    /**
+     * Same as {@link #parse(String...)}, but replaces each argument
+     * <code>@path</code> with the arguments in the file at
+     * <code>path</code>, like <code>javac</code> does:
+     * 
+     * <pre>
+     * $ java -jar app.jar --name test @shards.txt
+     * </pre>
+     * 
+     * The file is read as UTF-8, streamed in chunks and each argument is
+     * indexed as soon as it is read. Arguments are separated by white space,
+     * may be quoted with <code>"</code> or <code>'</code>, in which a
+     * <code>\</code> escapes the next character and <code>\n</code>,
+     * <code>\t</code>, <code>\r</code> and <code>\f</code> are the control
+     * characters, and a <code>#</code>
+     * outside of an argument starts a comment up to the end of the line.
+     * Files are not expanded recursively.
+     * <p>
+     * Keep and reuse the result for all options, the files are read on every
+     * call.
+     * 
+     * @param args
+     *            a list with 0..n entries or from e.g.
+     *            <code>public static void main(<b>String[] args</b>)</code>,
+     *            may be <code>null</code>
+     * @return the indexed arguments, never <code>null</code>
+     * @throws IOException
+     *             if a file cannot be read or is malformed
+     */
+    public static ParsedArgs expand(String... args) throws IOException {
+        if (args == null || args.length == 0) {
+            return EMPTY;
+        }
+
+        Indexer indexer = new Indexer(args.length);
+        for (String arg : args) {
+            if (arg != null && arg.length() > 1 && arg.charAt(0) == '@') {
+                ArgFile.read(Paths.get(arg.substring(1)), indexer);
+            }
+            else {
+                indexer.add(arg);
+            }
+        }
+
+        return new ParsedArgs(indexer);
+    }
+
+    /**
+     * @return the number of arguments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index
+     *            0..{@link #size()}-1
+     * @return the argument at <code>index</code>
+     */
+    public String get(int index) {
+        if (index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+
+        return args[index];
+    }
+
+    /**
+     * Looks up a named argument like <code>--key</code> first, then a flag
+     * like <code>-f</code>.
+     * 
+     * @throws MissingArgumentException
+     *             if the argument is not followed by its value
+     */
+    @Override
+    public String lookup(String key, Character flag, boolean bool) {
+        return lookup(key, key != null ? OptionsResolver.longName(key) : null,
+                flag, bool);
+    }
+
+    /**
+     * Same as {@link #lookup(String, Character, boolean)} with a precomputed
+     * {@link OptionsResolver#longName(String)}.
+     */
+    String lookup(String key, String name, Character flag, boolean bool) {
+        String value = find(key, name, flag, bool);
+        if (value == MISSING) {
+            throw new MissingArgumentException(key, flag,
+                    OptionsResolver.noArgument(size));
+        }
+
+        return value;
+    }
+
+    /**
+     * Same as {@link #lookup(String, String, Character, boolean)}, but
+     * returns {@link #MISSING} instead of throwing.
+     */
+    String find(String key, String name, Character flag, boolean bool) {
+        // named argument
+        if (name != null) {
+            int i = indexOfName(name);
+            if (i >= 0) {
+                return value(Origin.NAMED, i, bool, key, flag);
+            }
+        }
+
+        // flag (boolean)
+        if (flag != null &&
+                (Character.isLetter(flag) || Character.isDigit(flag))) {
+            int i = indexOfFlag(flag, bool);
+            if (i >= 0) {
+                return value(Origin.FLAG, i, bool, key, flag);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Same as {@link #lookup(String, String, Character, boolean)} for an
+     * option which takes a value, but adds the values of all occurrences to
+     * <code>values</code>, in the order of the arguments.
+     * 
+     * @throws MissingArgumentException
+     *             if an argument is not followed by its value
+     */
+    void findAll(String key, String name, Character flag,
+            List<String> values) {
+        int named = name != null ? indexOfName(name) : -1;
+        int flagged = flag != null &&
+                (Character.isLetter(flag) || Character.isDigit(flag)) ?
+                indexOfFlag(flag, false) : -1;
+
+        // merges both chains
+        while (named >= 0 || flagged >= 0) {
+            String value;
+            if (flagged < 0 || named >= 0 && named < flagged) {
+                value = value(Origin.NAMED, named, false, key, flag);
+                named = next(named);
+            }
+            else {
+                value = value(Origin.FLAG, flagged, false, key, flag);
+                flagged = next(flagged);
+            }
+
+            if (value == MISSING) {
+                throw new MissingArgumentException(key, flag,
+                        OptionsResolver.noArgument(size));
+            }
+            values.add(value);
+        }
+    }
+
+    /**
+     * @param name
+     *            a named argument including the leading dashes, e.g.
+     *            <code>--port</code>
+     * @return the index of the first exact match or <code>-1</code>
+     */
+    int indexOfName(String name) {
+        Integer index = names.get(name);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * @param flag
+     *            a single character
+     * @param bool
+     *            <code>true</code> if any position in <code>-xyz</code> may
+     *            match, <code>false</code> if only the last one (which takes
+     *            the value) may match
+     * @return the index of the first match or <code>-1</code>
+     */
+    int indexOfFlag(char flag, boolean bool) {
+        return (bool ? flags : lastFlags).indexOf(flag);
+    }
+
+    private int next(int index) {
+        int i = next[index];
+        return i > 0 ? i : -1;
+    }
+
+    private String value(Origin origin, int index, boolean bool, String key,
+            Character flag) {
+        if (!bool && ++index >= size) {
+            return MISSING;
+        }
+
+        return OptionsResolver.found(origin, key, flag, bool ? "true"
+                : args[index]);
+    }
+
+    private boolean same(String[] other) {
+        if (other.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (other[i] != args[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Indexes arguments as they are added, one at a time.
+     */
+    static final class Indexer {
+
+        private String[] args;
+        private int[] next;
+        private int size;
+        private final Map<String, Integer> names = new HashMap<>();
+        private final FlagIndex flags = new FlagIndex();
+        private final FlagIndex lastFlags = new FlagIndex();
+
+        /** last index of each <code>--name</code> argument */
+        private final Map<String, Integer> lastNames = new HashMap<>();
+
+        Indexer(int capacity) {
+            args = new String[capacity];
+            next = new int[capacity];
+        }
+
+        void add(String arg) {
+            if (size == args.length) {
+                args = Arrays.copyOf(args, Math.max(16, size * 2));
+                next = Arrays.copyOf(next, args.length);
+            }
+            int i = size++;
+            args[i] = arg;
+
+            if (arg == null || !arg.startsWith("-")) {
+                return;
+            }
+
+            if (arg.startsWith("--")) {
+                Integer previous = lastNames.put(arg, i);
+                if (previous != null) {
+                    next[previous] = i;
+                }
+                else {
+                    names.put(arg, i);
+                }
+            }
+            else {
+                for (int c = 1; c < arg.length(); c++) {
+                    flags.add(arg.charAt(c), i);
+                }
+                if (arg.length() > 1) {
+                    int previous = lastFlags.add(arg.charAt(arg.length() - 1),
+                            i);
+                    if (previous >= 0) {
+                        next[previous] = i;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The first and last index of each flag character: a bitmap and tables
+     * for ASCII, maps for any other Unicode letters and digits.
+     */
+    private static final class FlagIndex {
+
+        private final long[] ascii = new long[2];
+        private int[] first;
+        private int[] last;
+        private Map<Character, Integer> other;
+        private Map<Character, Integer> otherLast;
+
+        /**
+         * @return the previous last index of <code>flag</code> or
+         *         <code>-1</code>
+         */
+        int add(char flag, int index) {
+            if (flag < 128) {
+                long bit = 1L << flag;
+                if ((ascii[flag >> 6] & bit) == 0) {
+                    if (first == null) {
+                        first = new int[128];
+                        last = new int[128];
+                    }
+                    ascii[flag >> 6] |= bit;
+                    first[flag] = index;
+                    last[flag] = index;
+                    return -1;
+                }
+
+                int previous = last[flag];
+                last[flag] = index;
+                return previous;
+            }
+
+            if (other == null) {
+                other = new HashMap<>();
+                otherLast = new HashMap<>();
+            }
+            other.putIfAbsent(flag, index);
+            Integer previous = otherLast.put(flag, index);
+            return previous != null ? previous : -1;
+        }
+
+        int indexOf(char flag) {
+            if (flag < 128) {
+                return (ascii[flag >> 6] & (1L << flag)) != 0 ? first[flag]
+                        : -1;
+            }
+
+            Integer index = other != null ? other.get(flag) : null;
+            return index != null ? index : -1;
+        }
+    }
+}
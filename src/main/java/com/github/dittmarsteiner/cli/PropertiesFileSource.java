@@ -0,0 +1,460 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+
+/**
+ * An {@link OptionSource} reading a <code>.properties</code> file, which may
+ * change at runtime:
+ * 
+ * <pre>
+ * PropertiesFileSource config = PropertiesFileSource.watch(Paths.get("app.properties"));
+ * LayeredResolver resolver = LayeredResolver.standard(args);
+ * resolver.add(0, config);
+ * </pre>
+ * 
+ * The file is read through a memory-mapped {@link FileChannel} and parsed
+ * into an immutable table, creating no other <code>String</code>s than the
+ * keys and values. A mapping is only released by the garbage collector and
+ * keeps the file locked on Windows, which would block replacing it, so there
+ * the file is read into a heap buffer instead. It is read as UTF-8 with the syntax of
+ * {@link java.util.Properties#load(java.io.Reader)}: <code>#</code> and
+ * <code>!</code> comments, <code>=</code>, <code>:</code> or white space as
+ * separator, line continuations and <code>\t \n \r \f \\uxxxx</code>
+ * escapes. Like in {@link java.util.Properties} the last of duplicate keys
+ * wins.
+ * <p>
+ * {@link #watch(Path)} reloads the file on every change, seen by a
+ * {@link WatchService} on a daemon thread. Each reload parses the whole file
+ * into a new table and publishes it at once: lookups only read a volatile
+ * field and never wait for a reload. If a reload fails, e.g. the file was
+ * deleted, the last table is kept.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class PropertiesFileSource implements OptionSource, Closeable {
+
+    /** whether a mapped file can still be replaced, see the class comment */
+    private static final boolean MAP = !System.getProperty("os.name", "")
+            .startsWith("Windows");
+
+    private final Path path;
+    private volatile StringTable table;
+    private WatchService watcher;
+
+    private PropertiesFileSource(Path path) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.table = read(this.path);
+    }
+
+    /**
+     * Reads the file once.
+     * 
+     * @throws IOException
+     *             if the file cannot be read
+     * @throws IllegalArgumentException
+     *             if the file contains a malformed <code>\\uxxxx</code>
+     *             escape
+     */
+    public static PropertiesFileSource load(Path path) throws IOException {
+        return new PropertiesFileSource(path);
+    }
+
+    /**
+     * Reads the file and reloads it on every change until {@link #close()}.
+     * 
+     * @throws IOException
+     *             if the file cannot be read or watched
+     * @throws IllegalArgumentException
+     *             if the file contains a malformed <code>\\uxxxx</code>
+     *             escape
+     */
+    public static PropertiesFileSource watch(Path path) throws IOException {
+        PropertiesFileSource source = new PropertiesFileSource(path);
+        source.startWatching();
+        return source;
+    }
+
+    /**
+     * @return the value of <code>key</code> in the current table, the
+     *         <code>flag</code> is not used
+     */
+    @Override
+    public String lookup(String key, Character flag, boolean bool) {
+        return table.get(key);
+    }
+
+    /**
+     * Reads the file again and publishes the new values.
+     * 
+     * @throws IOException
+     *             if the file cannot be read, the last values are kept
+     * @throws IllegalArgumentException
+     *             if the file contains a malformed <code>\\uxxxx</code>
+     *             escape, the last values are kept
+     */
+    public synchronized void reload() throws IOException {
+        table = read(path);
+    }
+
+    /**
+     * @return the absolute path of the file
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * @return the number of values
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Stops watching the file, the last values remain.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+
+    private synchronized void startWatching() throws IOException {
+        watcher = path.getFileSystem().newWatchService();
+        path.getParent().register(watcher,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+
+        WatchService watcher = this.watcher;
+        Thread thread = new Thread(() -> run(watcher),
+                "OptionsResolver-watch-" + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run(WatchService watcher) {
+        Path name = path.getFileName();
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    changed |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                            || name.equals(event.context());
+                }
+                if (changed) {
+                    try {
+                        reload();
+                    }
+                    catch (IOException | RuntimeException | InternalError e) {
+                        // keep the last values and watching, e.g. while
+                        // being replaced, or InternalError if truncated
+                        // while mapped
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        }
+        catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    static StringTable read(Path path) throws IOException {
+        return read(path, MAP);
+    }
+
+    /**
+     * @param map
+     *            whether to map the file or to read it into a heap buffer
+     */
+    static StringTable read(Path path, boolean map) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large: " + path);
+            }
+
+            if (map) {
+                return new Parser(channel.map(FileChannel.MapMode.READ_ONLY,
+                        0, size)).parse();
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // until full or truncated meanwhile
+            }
+            ((Buffer) buffer).flip(); // Java 8 compatible
+            return new Parser(buffer).parse();
+        }
+    }
+
+    /**
+     * Parses the bytes in place, copying only the bytes of each key and
+     * value into a reused buffer, in bulk unless they contain escapes.
+     */
+    static final class Parser {
+
+        private final ByteBuffer buffer;
+        private final ByteBuffer view;
+        private final int limit;
+        private int pos;
+        private byte[] scratch = new byte[64];
+        private int length;
+        private String[] keys = new String[16];
+        private String[] values = new String[16];
+        private int count;
+
+        Parser(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.view = buffer.duplicate();
+            this.limit = buffer.limit();
+        }
+
+        StringTable parse() {
+            while (true) {
+                // blank lines and leading white space
+                while (pos < limit && isWhitespace(buffer.get(pos), true)) {
+                    pos++;
+                }
+                if (pos >= limit) {
+                    return new StringTable(keys, values, count);
+                }
+
+                byte b = buffer.get(pos);
+                if (b == '#' || b == '!') {
+                    while (pos < limit && !isLineEnd(buffer.get(pos))) {
+                        pos++;
+                    }
+                    continue;
+                }
+
+                String key = element(true);
+                skipWhitespace();
+                if (pos < limit && (buffer.get(pos) == '=' ||
+                        buffer.get(pos) == ':')) {
+                    pos++;
+                    skipWhitespace();
+                }
+                add(key, element(false));
+            }
+        }
+
+        private void add(String key, String value) {
+            if (count == keys.length) {
+                keys = Arrays.copyOf(keys, count * 2);
+                values = Arrays.copyOf(values, count * 2);
+            }
+            keys[count] = key;
+            values[count++] = value;
+        }
+
+        private String element(boolean key) {
+            int start = pos;
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (isEnd(b, key)) {
+                    break;
+                }
+                if (b == '\\') {
+                    return escaped(key, start);
+                }
+                pos++;
+            }
+
+            length = 0;
+            copy(start);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private String escaped(boolean key, int start) {
+            length = 0;
+            copy(start);
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (isEnd(b, key)) {
+                    break;
+                }
+
+                pos++;
+                if (b != '\\') {
+                    put(b);
+                }
+                else if (pos < limit) {
+                    escape(buffer.get(pos++));
+                }
+            }
+
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        /** copies the bytes from <code>start</code> to the current position */
+        private void copy(int start) {
+            int n = pos - start;
+            ensure(length + n);
+            ((Buffer) view).position(start); // Java 8 compatible
+            view.get(scratch, length, n);
+            length += n;
+        }
+
+        private void escape(byte b) {
+            switch (b) {
+            case '\r':
+                if (pos < limit && buffer.get(pos) == '\n') {
+                    pos++;
+                }
+                skipWhitespace(); // continuation line
+                break;
+            case '\n':
+                skipWhitespace(); // continuation line
+                break;
+            case 't':
+                put((byte) '\t');
+                break;
+            case 'n':
+                put((byte) '\n');
+                break;
+            case 'r':
+                put((byte) '\r');
+                break;
+            case 'f':
+                put((byte) '\f');
+                break;
+            case 'u':
+                char c = unicode();
+                if (Character.isHighSurrogate(c) && pos + 1 < limit &&
+                        buffer.get(pos) == '\\' && buffer.get(pos + 1) == 'u') {
+                    pos += 2;
+                    char low = unicode();
+                    if (Character.isLowSurrogate(low)) {
+                        put(Character.toCodePoint(c, low));
+                        break;
+                    }
+                    put(c);
+                    c = low;
+                }
+                put(c);
+                break;
+            default:
+                put(b);
+            }
+        }
+
+        private char unicode() {
+            if (pos + 4 > limit) {
+                throw new IllegalArgumentException(
+                        "Malformed \\uxxxx encoding.");
+            }
+
+            int c = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(buffer.get(pos++), 16);
+                if (digit < 0) {
+                    throw new IllegalArgumentException(
+                            "Malformed \\uxxxx encoding.");
+                }
+                c = (c << 4) | digit;
+            }
+
+            return (char) c;
+        }
+
+        private void put(int codePoint) {
+            if (codePoint >= Character.MIN_SURROGATE &&
+                    codePoint <= Character.MAX_SURROGATE) {
+                put((byte) '?');
+            }
+            else if (codePoint < 0x80) {
+                put((byte) codePoint);
+            }
+            else if (codePoint < 0x800) {
+                put((byte) (0xc0 | codePoint >> 6));
+                put((byte) (0x80 | codePoint & 0x3f));
+            }
+            else if (codePoint < 0x10000) {
+                put((byte) (0xe0 | codePoint >> 12));
+                put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                put((byte) (0x80 | codePoint & 0x3f));
+            }
+            else {
+                put((byte) (0xf0 | codePoint >> 18));
+                put((byte) (0x80 | codePoint >> 12 & 0x3f));
+                put((byte) (0x80 | codePoint >> 6 & 0x3f));
+                put((byte) (0x80 | codePoint & 0x3f));
+            }
+        }
+
+        private void put(byte b) {
+            ensure(length + 1);
+            scratch[length++] = b;
+        }
+
+        private void ensure(int capacity) {
+            if (capacity > scratch.length) {
+                scratch = Arrays.copyOf(scratch, Math.max(capacity,
+                        scratch.length * 2));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < limit && isWhitespace(buffer.get(pos), false)) {
+                pos++;
+            }
+        }
+
+        private static boolean isEnd(byte b, boolean key) {
+            return isLineEnd(b) ||
+                    key && (b == '=' || b == ':' || isWhitespace(b, false));
+        }
+
+        private static boolean isWhitespace(byte b, boolean lineEnd) {
+            return b == ' ' || b == '\t' || b == '\f' ||
+                    lineEnd && isLineEnd(b);
+        }
+
+        private static boolean isLineEnd(byte b) {
+            return b == '\r' || b == '\n';
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The values of all options of an {@link OptionSchema}, see
+ * {@link OptionSchema#resolve(String...)}, or read from a file on demand,
+ * see {@link OptionsFile}.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class ResolvedOptions {
+
+    private final OptionSchema schema;
+    private final Object[] values;
+
+    /**
+     * the values read on demand, {@link OptionSchema#UNSET} until read,
+     * <code>null</code> if resolved
+     */
+    private final AtomicReferenceArray<Object> read;
+    private final OptionsFile.Reader reader;
+
+    ResolvedOptions(OptionSchema schema, Object[] values) {
+        this.schema = schema;
+        this.values = values;
+        this.read = null;
+        this.reader = null;
+    }
+
+    ResolvedOptions(OptionSchema schema, OptionsFile.Reader reader) {
+        Object[] unset = new Object[schema.size()];
+        Arrays.fill(unset, OptionSchema.UNSET);
+        this.schema = schema;
+        this.values = null;
+        this.read = new AtomicReferenceArray<>(unset);
+        this.reader = reader;
+    }
+
+    /**
+     * @return the schema of these options
+     */
+    public OptionSchema schema() {
+        return schema;
+    }
+
+    /**
+     * @param key
+     *            the key of an option
+     * @return the resolved value or the default
+     * @throws IllegalArgumentException
+     *             if there is no option with this key
+     */
+    public <T> T get(String key) {
+        return get(schema.indexOf(key));
+    }
+
+    /**
+     * @param index
+     *            the index of an option, see {@link OptionSchema#indexOf(String)}
+     * @return the resolved value or the default
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int index) {
+        if (read == null) {
+            return (T) values[index];
+        }
+
+        Object value = read.get(index);
+        if (value == OptionSchema.UNSET) {
+            // the first read wins, all threads see the same instance
+            read.compareAndSet(index, OptionSchema.UNSET, reader.read(index));
+            value = read.get(index);
+        }
+
+        return (T) value;
+    }
+
+    /**
+     * @return the value of an {@link Integer} option
+     */
+    public int getInt(String key) {
+        return this.<Integer> get(key);
+    }
+
+    /**
+     * @return the value of a {@link Long} option
+     */
+    public long getLong(String key) {
+        return this.<Long> get(key);
+    }
+
+    /**
+     * @return the value of a {@link Double} option
+     */
+    public double getDouble(String key) {
+        return this.<Double> get(key);
+    }
+
+    /**
+     * @return the value of a {@link Boolean} option
+     */
+    public boolean getBoolean(String key) {
+        return this.<Boolean> get(key);
+    }
+
+    /**
+     * @return the value of a {@link String} option
+     */
+    public String getString(String key) {
+        return get(key);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters of how options are resolved by {@link OptionsResolver}:
+ * <ul>
+ * <li>hits per {@link Origin}, i.e. which source won
+ * <li>hits per key (or <code>-flag</code> if there is no key)
+ * <li>a histogram of conversion latencies
+ * <li>failures per exception type
+ * </ul>
+ * If available, JDK Flight Recorder events
+ * <code>com.github.dittmarsteiner.cli.OptionResolved</code> and
+ * <code>com.github.dittmarsteiner.cli.OptionFailed</code> are emitted as well.
+ * <p>
+ * While disabled, which is the default, the resolver only reads a
+ * <code>volatile boolean</code> per call.
+ * 
+ * <pre>
+ * ResolverMetrics.enable();
+ * ...
+ * long fromEnv = ResolverMetrics.count(Origin.ENV);
+ * </pre>
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class ResolverMetrics {
+
+    /** read by the resolver on every call */
+    static volatile boolean enabled;
+
+    /** the JFR events, <code>null</code> if not available */
+    private static final Events events = jfrEvents();
+
+    private static final Map<Origin, LongAdder> origins = new EnumMap<>(
+            Origin.class);
+    static {
+        for (Origin origin : Origin.values()) {
+            origins.put(origin, new LongAdder());
+        }
+    }
+
+    private static final ConcurrentMap<String, LongAdder> keys =
+            new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<Class<?>, LongAdder> failures =
+            new ConcurrentHashMap<>();
+
+    /** see {@link #conversionHistogram()} */
+    private static final LongAdder[] conversions = new LongAdder[64];
+    static {
+        for (int i = 0; i < conversions.length; i++) {
+            conversions[i] = new LongAdder();
+        }
+    }
+
+    private ResolverMetrics() {
+    }
+
+    /**
+     * Starts counting.
+     */
+    public static void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Stops counting, the counts are kept.
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+    /**
+     * @return <code>true</code> if counting
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets all counts to 0.
+     */
+    public static void reset() {
+        for (LongAdder adder : origins.values()) {
+            adder.reset();
+        }
+        for (LongAdder adder : conversions) {
+            adder.reset();
+        }
+        keys.clear();
+        failures.clear();
+    }
+
+    /**
+     * @return how often an option was resolved from <code>origin</code>
+     */
+    public static long count(Origin origin) {
+        return origins.get(origin).sum();
+    }
+
+    /**
+     * @return how often each key was resolved, from any {@link Origin}
+     */
+    public static Map<String, Long> keyCounts() {
+        return sums(keys);
+    }
+
+    /**
+     * @return how often each type of {@link OptionsResolver.OptionsException}
+     *         was thrown
+     */
+    public static Map<Class<?>, Long> failureCounts() {
+        return sums(failures);
+    }
+
+    /**
+     * @return 64 buckets, bucket <code>i</code> counts conversions which
+     *         took 2<sup>i-1</sup> to 2<sup>i</sup>-1 nanoseconds, bucket 0
+     *         those which took less than a nanosecond
+     */
+    public static long[] conversionHistogram() {
+        long[] histogram = new long[conversions.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = conversions[i].sum();
+        }
+
+        return histogram;
+    }
+
+    /**
+     * Records a resolved option, only called if {@link #enabled}.
+     */
+    static void resolved(Origin origin, String key, Character flag) {
+        origins.get(origin).increment();
+
+        String name = key != null ? key : "-" + flag;
+        LongAdder adder = keys.get(name);
+        if (adder == null) {
+            adder = keys.computeIfAbsent(name, k -> new LongAdder());
+        }
+        adder.increment();
+
+        if (events != null) {
+            events.resolved(origin, key, flag);
+        }
+    }
+
+    /**
+     * @return the start of a conversion for {@link #converted(long)}, or 0 if
+     *         not {@link #enabled}
+     */
+    static long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the latency of a conversion.
+     * 
+     * @param start
+     *            from {@link #start()}
+     */
+    static void converted(long start) {
+        if (start != 0L) {
+            long nanos = System.nanoTime() - start;
+            conversions[64 - Long.numberOfLeadingZeros(Math.max(nanos, 0L))]
+                    .increment();
+        }
+    }
+
+    /**
+     * Records a failure, only called if {@link #enabled}.
+     */
+    static void failed(Class<?> type, String message) {
+        LongAdder adder = failures.get(type);
+        if (adder == null) {
+            adder = failures.computeIfAbsent(type, k -> new LongAdder());
+        }
+        adder.increment();
+
+        if (events != null) {
+            events.failed(type, message);
+        }
+    }
+
+    private static <K> Map<K, Long> sums(Map<K, LongAdder> adders) {
+        Map<K, Long> sums = new HashMap<>();
+        for (Map.Entry<K, LongAdder> entry : adders.entrySet()) {
+            sums.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return Collections.unmodifiableMap(sums);
+    }
+
+    /**
+     * @return the <code>JfrEvents</code>, loaded by name since they are not
+     *         compiled by the <code>no-jfr</code> build profile, or
+     *         <code>null</code> without <code>jdk.jfr</code>
+     */
+    private static Events jfrEvents() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return (Events) Class.forName(
+                    "com.github.dittmarsteiner.cli.JfrEvents")
+                    .getDeclaredConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Receives what is recorded, see <code>JfrEvents</code>.
+     */
+    interface Events {
+
+        void resolved(Origin origin, String key, Character flag);
+
+        void failed(Class<?> type, String message);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+import com.github.dittmarsteiner.cli.OptionsResolver.OptionsException;
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
+/**
+ * The outcome of
+ * {@link OptionsResolver#tryResolve(Object, String, Character, String...)}:
+ * either a value, or an {@link ErrorCode} with the key and flag of the option.
+ * <p>
+ * A failure only keeps its parts, the {@link #message()} is built when
+ * asked for and an exception only by {@link #get()} or {@link #exception()}:
+ * 
+ * <pre>
+ * Result&lt;Integer&gt; port = OptionsResolver.tryResolve(8080, "PORT", 'p', args);
+ * if (!port.isOk()) {
+ *     errors.add(port.error());
+ * }
+ * </pre>
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public final class Result<T> {
+
+    /**
+     * Why an option could not be resolved, one per {@link OptionsException}.
+     */
+    public enum ErrorCode {
+        /** see {@link MissingArgumentException} */
+        MISSING_ARGUMENT(MissingArgumentException.class),
+        /** see {@link NotANumberException} */
+        NOT_A_NUMBER(NotANumberException.class),
+        /** see {@link StringConstructorException} */
+        STRING_CONSTRUCTOR(StringConstructorException.class);
+
+        private final Class<? extends OptionsException> exception;
+
+        private ErrorCode(Class<? extends OptionsException> exception) {
+            this.exception = exception;
+        }
+
+        /**
+         * @return the type of exception the throwing API uses
+         */
+        public Class<? extends OptionsException> exception() {
+            return exception;
+        }
+    }
+
+    private final T value;
+    private final ErrorCode error;
+    private final String key;
+    private final Character flag;
+    private final String input;
+    private final Class<?> type;
+    private final Throwable cause;
+
+    private Result(T value, ErrorCode error, String key, Character flag,
+            String input, Class<?> type, Throwable cause) {
+        this.value = value;
+        this.error = error;
+        this.key = key;
+        this.flag = flag;
+        this.input = input;
+        this.type = type;
+        this.cause = cause;
+    }
+
+    static <T> Result<T> ok(T value) {
+        return new Result<>(value, null, null, null, null, null, null);
+    }
+
+    static <T> Result<T> failed(ErrorCode error, String key, Character flag,
+            String input, Class<?> type, Throwable cause) {
+        Result<T> result = recorded(error, key, flag, input, type, cause);
+        if (ResolverMetrics.enabled) {
+            ResolverMetrics.failed(error.exception, result.message());
+        }
+
+        return result;
+    }
+
+    /**
+     * Same as {@link #failed(ErrorCode, String, Character, String, Class,
+     * Throwable)} for a failure its exception has already recorded in the
+     * {@link ResolverMetrics}.
+     */
+    static <T> Result<T> recorded(ErrorCode error, String key, Character flag,
+            String input, Class<?> type, Throwable cause) {
+        return new Result<>(null, error, key, flag, input, type, cause);
+    }
+
+    /**
+     * @return <code>true</code> if resolved, also to the default value
+     */
+    public boolean isOk() {
+        return error == null;
+    }
+
+    /**
+     * @return the value
+     * @throws OptionsException
+     *             if failed, see {@link #exception()}
+     */
+    public T get() {
+        if (error != null) {
+            throw exception();
+        }
+
+        return value;
+    }
+
+    /**
+     * @return the value, or <code>other</code> if failed
+     */
+    public T orElse(T other) {
+        return error == null ? value : other;
+    }
+
+    /**
+     * @return the error or <code>null</code> if resolved
+     */
+    public ErrorCode error() {
+        return error;
+    }
+
+    /**
+     * @return the key of the option, <code>null</code> if resolved
+     */
+    public String key() {
+        return key;
+    }
+
+    /**
+     * @return the flag of the option, <code>null</code> if resolved
+     */
+    public Character flag() {
+        return flag;
+    }
+
+    /**
+     * @return the message of the exception the throwing API would throw, or
+     *         <code>null</code> if resolved
+     */
+    public String message() {
+        if (error == null) {
+            return null;
+        }
+
+        switch (error) {
+        case MISSING_ARGUMENT:
+            return MissingArgumentException.message(key, flag);
+        case NOT_A_NUMBER:
+            return NotANumberException.message(key, flag);
+        default:
+            return StringConstructorException.message(input, type, cause);
+        }
+    }
+
+    /**
+     * @return a new exception the throwing API would throw, or
+     *         <code>null</code> if resolved, not recorded in the
+     *         {@link ResolverMetrics} again
+     */
+    public OptionsException exception() {
+        if (error == null) {
+            return null;
+        }
+
+        switch (error) {
+        case MISSING_ARGUMENT:
+            return new MissingArgumentException(key, flag,
+                    OptionsResolver.noArgument(0), false);
+        case NOT_A_NUMBER:
+            return new NotANumberException(key, flag,
+                    cause instanceof NumberFormatException ?
+                            (NumberFormatException) cause
+                            : OptionsResolver.stackTraces
+                                    ? new NumberFormatException(input)
+                                    : OptionsResolver.NOT_A_NUMBER, false);
+        default:
+            return new StringConstructorException(input, type, cause, false);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return error == null ? String.valueOf(value) : error + ": "
+                + message();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import java.util.Map;
+
+/**
+ * An immutable <code>String</code> to <code>String</code> map with open
+ * addressing and linear probing over two plain arrays. Lookups take no locks
+ * and allocate nothing.
+ * 
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+final class StringTable {
+
+    private final String[] keys;
+    private final String[] values;
+    private final int mask;
+    private int size;
+
+    /**
+     * @param map
+     *            the entries to copy, <code>null</code> keys and values are
+     *            skipped
+     */
+    StringTable(Map<String, String> map) {
+        this(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * @param keys
+     *            the keys, the last of duplicate keys wins
+     * @param values
+     *            the values of the <code>keys</code>
+     * @param count
+     *            the number of entries to copy
+     */
+    StringTable(String[] keys, String[] values, int count) {
+        this(count);
+        for (int i = 0; i < count; i++) {
+            put(keys[i], values[i]);
+        }
+    }
+
+    private StringTable(int entries) {
+        int capacity = 2;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+
+        keys = new String[capacity];
+        values = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * @param key
+     *            may be <code>null</code>
+     * @return the value or <code>null</code>
+     */
+    String get(String key) {
+        if (key == null) {
+            return null;
+        }
+
+        int i = hash(key) & mask;
+        String k;
+        while ((k = keys[i]) != null) {
+            if (k.equals(key)) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    int size() {
+        return size;
+    }
+
+    private void put(String key, String value) {
+        if (key == null || value == null) {
+            return;
+        }
+
+        int i = hash(key) & mask;
+        while (keys[i] != null && !keys[i].equals(key)) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == null) {
+            size++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * @see BulkResolver
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class BulkResolverTest {
+
+    private static final int ROWS = 10000;
+
+    private final OptionSchema schema = OptionSchema.builder()
+            .option(8080, "BULK_PORT", 'p')
+            .option(0L, "BULK_SIZE", 's')
+            .option(0.5, "BULK_RATIO", 'r')
+            .option(false, "BULK_TEST", 't')
+            .option("none", "BULK_NAME", 'n')
+            .option(Integer.class, null, "BULK_ID", 'i')
+            .option(1, "BULK_HOISTED", 'h')
+            .build();
+
+    @Test
+    public void testColumns() {
+        List<String[]> vectors = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            vectors.add(i % 2 == 0 ? new String[] { "-p", "" + i, "-ts",
+                    "" + i * 10L, "--bulk_name", "n" + i, "-h", "2" }
+                    : new String[] { "-r", "1.5", "-i", "" + i });
+        }
+
+        System.setProperty("BULK_HOISTED", "3");
+        try {
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try {
+                for (BulkResolver bulk : new BulkResolver[] {
+                        new BulkResolver(schema),
+                        new BulkResolver(schema, pool) }) {
+                    assertColumns(bulk.columns(vectors));
+                }
+            }
+            finally {
+                pool.shutdown();
+            }
+        }
+        finally {
+            System.clearProperty("BULK_HOISTED");
+        }
+    }
+
+    private void assertColumns(BulkResolver.Columns columns) {
+        assertEquals(ROWS, columns.size());
+        int[] ports = columns.ints("BULK_PORT");
+        long[] sizes = columns.longs("BULK_SIZE");
+        double[] ratios = columns.doubles("BULK_RATIO");
+        boolean[] tests = columns.booleans("BULK_TEST");
+        Object[] names = columns.values("BULK_NAME");
+        Object[] ids = columns.values("BULK_ID"); // no default
+        int[] hoisted = columns.ints("BULK_HOISTED");
+
+        for (int i = 0; i < ROWS; i++) {
+            boolean even = i % 2 == 0;
+            assertEquals(even ? i : 8080, ports[i]);
+            assertEquals(even ? i * 10L : 0L, sizes[i]);
+            assertEquals(even ? 0.5 : 1.5, ratios[i], 0.0);
+            assertEquals(even, tests[i]);
+            assertEquals(even ? "n" + i : "none", names[i]);
+            assertEquals(even ? null : i, ids[i]);
+            assertEquals(3, hoisted[i]); // property wins over -h
+        }
+
+        try {
+            columns.values("BULK_PORT");
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        Path file = Files.createTempFile("vectors", ".txt");
+        try {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < ROWS; i++) {
+                text.append("-p ").append(i).append(" --bulk_name 'n ")
+                        .append(i).append("'\n");
+            }
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            BulkResolver bulk = new BulkResolver(schema);
+            BulkResolver.Columns columns = bulk.columns(file);
+            assertEquals(ROWS, columns.size());
+            assertEquals(ROWS - 1, columns.ints("BULK_PORT")[ROWS - 1]);
+            assertEquals("n 7", columns.values("BULK_NAME")[7]);
+
+            ConcurrentMap<Integer, String> names = new ConcurrentHashMap<>();
+            bulk.forEach(file, options -> names.put(options
+                    .getInt("BULK_PORT"), options.getString("BULK_NAME")));
+            assertEquals(ROWS, names.size());
+            assertEquals("n 42", names.get(42));
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testForEach() {
+        List<String[]> vectors = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            vectors.add(new String[] { "--bulk_size", "" + i });
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ConcurrentMap<Long, Boolean> sizes = new ConcurrentHashMap<>();
+        new BulkResolver(schema).forEach(vectors.stream(), options -> {
+            count.incrementAndGet();
+            sizes.put(options.getLong("BULK_SIZE"), true);
+        });
+        assertEquals(ROWS, count.get());
+        assertEquals(ROWS, sizes.size());
+
+        count.set(0);
+        new BulkResolver(schema).forEach(vectors.spliterator(),
+                options -> count.incrementAndGet());
+        assertEquals(ROWS, count.get());
+    }
+
+    @Test
+    public void testConverter() {
+        Converter<Integer> valueOf = Converters.forType(Integer.class);
+        Converters.register(Integer.class, Integer::decode);
+        try {
+            OptionSchema hex = OptionSchema.builder()
+                    .option(0, "BULK_HEX", 'x').build();
+            List<String[]> vectors = new ArrayList<>();
+            for (int i = 0; i < ROWS; i++) {
+                vectors.add(new String[] { "-x",
+                        "0x" + Integer.toHexString(i) });
+            }
+
+            int[] values = new BulkResolver(hex).columns(vectors)
+                    .ints("BULK_HEX");
+            for (int i = 0; i < ROWS; i++) {
+                // same as OptionSchema.resolve
+                assertEquals(hex.resolve(vectors.get(i)).getInt("BULK_HEX"),
+                        values[i]);
+                assertEquals(i, values[i]);
+            }
+        }
+        finally {
+            Converters.register(Integer.class, valueOf);
+        }
+    }
+
+    @Test
+    public void testFailure() {
+        List<String[]> vectors = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            vectors.add(new String[] { "-p", "" + i });
+        }
+        vectors.set(ROWS / 2, new String[] { "-p", "x" });
+
+        BulkResolver bulk = new BulkResolver(schema);
+        try {
+            bulk.columns(vectors);
+            fail("Expected NotANumberException");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+
+        vectors.set(ROWS / 2, new String[] { "-p" });
+        try {
+            bulk.forEach(vectors.stream(), options -> {
+            });
+            fail("Expected MissingArgumentException");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+    }
+}
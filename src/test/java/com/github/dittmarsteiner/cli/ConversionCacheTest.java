@@ -0,0 +1,133 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
+/**
+ * @see ConversionCache
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class ConversionCacheTest {
+
+    @After
+    public void uncache() {
+        Converters.uncache(BigDecimal.class);
+        Converters.uncache(URI.class);
+    }
+
+    @Test
+    public void testCache() {
+        ConversionCache<BigDecimal> cache = Converters.cache(BigDecimal.class,
+                100);
+        assertSame(cache, Converters.forType(BigDecimal.class));
+
+        BigDecimal first = OptionsResolver.resolve(BigDecimal.ZERO,
+                "CACHE_DECIMAL", 'd', "-d", "1.10");
+        BigDecimal second = OptionsResolver.resolve(BigDecimal.ZERO,
+                "CACHE_DECIMAL", 'd', "-d", "1.10");
+        assertEquals(new BigDecimal("1.10"), first);
+        assertSame(first, second);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.size());
+
+        try {
+            OptionsResolver.resolve(BigDecimal.ZERO, "CACHE_DECIMAL", 'd',
+                    "-d", "x");
+            fail("Expected StringConstructorException");
+        }
+        catch (StringConstructorException e) {
+            // expected, nothing cached
+        }
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.misses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.hits());
+
+        assertTrue(Converters.uncache(BigDecimal.class));
+        assertFalse(Converters.uncache(BigDecimal.class));
+        assertNotSame(first, Converters.forType(BigDecimal.class).convert(
+                "1.10"));
+    }
+
+    @Test
+    public void testEviction() {
+        ConversionCache<URI> cache = Converters.cache(URI.class, 2);
+        URI a = cache.convert("http://a");
+        cache.convert("http://b");
+        assertSame(a, cache.convert("http://a")); // b is eldest now
+        cache.convert("http://c");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.evictions());
+        assertSame(a, cache.convert("http://a"));
+        assertEquals(2, cache.hits());
+        cache.convert("http://b"); // evicted before
+        assertEquals(4, cache.misses());
+
+        // replacing a cache wraps the same converter
+        ConversionCache<URI> larger = Converters.cache(URI.class, 10000);
+        assertSame(cache.converter(), larger.converter());
+        assertEquals(10000, larger.maximumSize());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        ConversionCache<BigDecimal> cache = Converters.cache(BigDecimal.class,
+                1000);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100000; i++) {
+                        String value = Integer.toString(i % 2000);
+                        assertEquals(new BigDecimal(value), cache
+                                .convert(value));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        assertEquals(400000, cache.hits() + cache.misses());
+        assertTrue(cache.size() <= 1000);
+    }
+}
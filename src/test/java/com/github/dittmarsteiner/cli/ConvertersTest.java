@@ -0,0 +1,114 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
+/**
+ * @see Converters
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class ConvertersTest {
+
+    @Test
+    public void testBuiltIn() {
+        assertEquals(Integer.valueOf(80), Converters.forType(Integer.class)
+                .convert("80"));
+        assertEquals(Long.valueOf(80), Converters.forType(Long.class)
+                .convert("80"));
+        assertEquals(1.1d, Converters.forType(Double.class).convert("1.1"),
+                0d);
+        assertEquals(1.1f, Converters.forType(Float.class).convert("1.1"), 0f);
+        assertEquals(true, Converters.forType(Boolean.class).convert("true"));
+        assertEquals(false, Converters.forType(Boolean.class).convert("xyz"));
+        assertEquals("hello", Converters.forType(String.class)
+                .convert("hello"));
+
+        try {
+            OptionsResolver.resolve(8080, "PORT", 'p', "-p", "http");
+            fail("Expected NotANumberException for -p http");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testStringConstructor() {
+        Converter<BigDecimal> converter = Converters.forType(BigDecimal.class);
+        assertSame(converter, Converters.forType(BigDecimal.class)); // cached
+        assertEquals(new BigDecimal("1.10"), converter.convert("1.10"));
+
+        BigDecimal d = OptionsResolver.resolve(BigDecimal.ZERO, "ARG", 'a',
+                "-a", "1.10");
+        assertEquals(new BigDecimal("1.10"), d);
+
+        try {
+            converter.convert("one");
+            fail("Expected StringConstructorException for new BigDecimal(\"one\")");
+        }
+        catch (StringConstructorException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+
+        try {
+            OptionsResolver.resolve(new Object(), "ARG", 'a', "-a", "x");
+            fail("Expected StringConstructorException for new Object(\"x\")");
+        }
+        catch (StringConstructorException e) {
+            assertTrue(e.getCause() instanceof NoSuchMethodException);
+        }
+    }
+
+    @Test
+    public void testWrap() {
+        Converter<BigDecimal> converter = Converters.wrap(BigDecimal.class,
+                BigDecimal::new);
+        assertEquals(new BigDecimal("1.10"), converter.convert("1.10"));
+
+        try {
+            converter.convert("one"); // like Converters.forType(...)
+            fail("Expected StringConstructorException for \"one\"");
+        }
+        catch (StringConstructorException e) {
+            assertTrue(e.getCause() instanceof NumberFormatException);
+        }
+    }
+
+    @Test
+    public void testRegister() {
+        Converters.register(Duration.class, Duration::parse);
+
+        Duration timeout = OptionsResolver.resolve(Duration.ofSeconds(30),
+                "TIMEOUT", 't', "-t", "PT1M");
+        assertEquals(Duration.ofMinutes(1), timeout);
+
+        timeout = OptionsResolver.resolve(Duration.ofSeconds(30), "TIMEOUT",
+                't');
+        assertEquals(Duration.ofSeconds(30), timeout); // default
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @see EnvironmentSnapshot
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class EnvironmentSnapshotTest {
+
+    @After
+    public void disable() {
+        EnvironmentSnapshot.disable();
+    }
+
+    @Test
+    public void testSnapshot() {
+        EnvironmentSnapshot snapshot = EnvironmentSnapshot.capture();
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            assertEquals(entry.getValue(), snapshot.getenv(entry.getKey()));
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            assertEquals(System.getProperty(name), snapshot.getProperty(name));
+        }
+        assertNull(snapshot.getProperty("snapshot.none"));
+        assertNull(snapshot.getProperty(null));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        for (Map.Entry<String, String> entry : System.getenv().entrySet()) {
+            // like System.getenv(key)
+            assertEquals(System.getenv(entry.getKey().toLowerCase()),
+                    EnvironmentSnapshot.capture().getenv(entry.getKey()
+                            .toLowerCase()));
+            break;
+        }
+
+        Map<String, String> env = new HashMap<>();
+        env.put("Path", "C:\\Windows");
+        EnvironmentSnapshot windows = new EnvironmentSnapshot(env,
+                new Properties(), true);
+        assertEquals("C:\\Windows", windows.getenv("PATH"));
+        assertEquals("C:\\Windows", windows.getenv("path"));
+        assertEquals("C:\\Windows", windows.getenv("Path"));
+        assertNull(windows.getenv(null));
+        assertEquals(env, windows.getenvByPrefix("P"));
+
+        EnvironmentSnapshot posix = new EnvironmentSnapshot(env,
+                new Properties(), false);
+        assertEquals("C:\\Windows", posix.getenv("Path"));
+        assertNull(posix.getenv("PATH"));
+    }
+
+    @Test
+    public void testResolve() {
+        System.setProperty("SNAPSHOT", "80");
+        EnvironmentSnapshot.refresh();
+        assertNull(EnvironmentSnapshot.current()); // not enabled
+
+        EnvironmentSnapshot.enable();
+        assertNotNull(EnvironmentSnapshot.current());
+        int port = OptionsResolver.resolveInt(8080, "SNAPSHOT", 'p', "-p", "1");
+        assertEquals(80, port); // System property in snapshot
+
+        System.setProperty("SNAPSHOT", "443");
+        port = OptionsResolver.resolveInt(8080, "SNAPSHOT", 'p', "-p", "1");
+        assertEquals(80, port); // not refreshed yet
+
+        EnvironmentSnapshot.refresh();
+        port = OptionsResolver.resolveInt(8080, "SNAPSHOT", 'p', "-p", "1");
+        assertEquals(443, port); // refreshed
+
+        System.clearProperty("SNAPSHOT");
+        EnvironmentSnapshot.refresh();
+        port = OptionsResolver.resolveInt(8080, "SNAPSHOT", 'p', "-p", "1");
+        assertEquals(1, port); // -p 1
+
+        EnvironmentSnapshot.disable();
+        System.setProperty("SNAPSHOT", "8443");
+        port = OptionsResolver.resolveInt(8080, "SNAPSHOT", 'p', "-p", "1");
+        assertEquals(8443, port); // System property read directly
+        System.clearProperty("SNAPSHOT");
+    }
+
+    @Test
+    public void testStringTable() {
+        Map<String, String> map = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            map.put("key" + i, "value" + i);
+        }
+        map.put("Aa", "collides"); // same hashCode as "BB"
+        map.put("BB", "with Aa");
+        map.put("null", null);
+
+        StringTable table = new StringTable(map);
+        assertEquals(1002, table.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("value" + i, table.get("key" + i));
+        }
+        assertEquals("collides", table.get("Aa"));
+        assertEquals("with Aa", table.get("BB"));
+        assertNull(table.get("null"));
+        assertNull(table.get("key1000"));
+        assertEquals(0, new StringTable(new HashMap<String, String>()).size());
+        assertNull(new StringTable(new HashMap<String, String>()).get("x"));
+    }
+
+    @Test
+    public void testPrefix() {
+        System.setProperty("prefix.db.host", "localhost");
+        System.setProperty("prefix.db.port", "5432");
+        System.setProperty("prefix.dbx", "other");
+        try {
+            EnvironmentSnapshot snapshot = EnvironmentSnapshot.capture();
+            Map<String, String> db = snapshot.getPropertiesByPrefix(
+                    "prefix.db.");
+            assertEquals(2, db.size());
+            assertEquals("localhost", db.get("prefix.db.host"));
+            assertEquals("[prefix.db.host, prefix.db.port]", db.keySet()
+                    .toString());
+            assertEquals(3, snapshot.getPropertiesByPrefix("prefix.db")
+                    .size());
+            assertTrue(snapshot.getPropertiesByPrefix("prefix.none.")
+                    .isEmpty());
+
+            Map<String, String> env = new HashMap<>();
+            for (Map.Entry<String, String> entry : System.getenv()
+                    .entrySet()) {
+                if (entry.getKey().startsWith("P")) {
+                    env.put(entry.getKey(), entry.getValue());
+                }
+            }
+            assertEquals(env, snapshot.getenvByPrefix("P"));
+        }
+        finally {
+            System.clearProperty("prefix.db.host");
+            System.clearProperty("prefix.db.port");
+            System.clearProperty("prefix.dbx");
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * Not compiled by the <code>no-jfr</code> build profile.
+ * 
+ * @see JfrEvents
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class JfrEventsTest {
+
+    @Before
+    public void enable() {
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+    }
+
+    @After
+    public void disable() {
+        ResolverMetrics.disable();
+        ResolverMetrics.reset();
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        Path file = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.github.dittmarsteiner.cli.OptionResolved");
+            recording.enable("com.github.dittmarsteiner.cli.OptionFailed");
+            recording.start();
+
+            try {
+                OptionsResolver.resolveInt(0, "METRICS_NAN", 'n', "-n", "x");
+                fail("Expected NotANumberException for -n x");
+            }
+            catch (NotANumberException e) {
+                // expected
+            }
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        assertEquals(2, events.size());
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().endsWith("OptionResolved")) {
+                assertEquals("FLAG", event.getString("origin"));
+                assertEquals("METRICS_NAN", event.getString("key"));
+            }
+            else {
+                assertEquals(NotANumberException.class.getName(),
+                        event.getString("exception"));
+            }
+        }
+    }
+}
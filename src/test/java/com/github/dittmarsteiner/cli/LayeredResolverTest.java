@@ -0,0 +1,139 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * @see LayeredResolver
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class LayeredResolverTest {
+
+    @Test
+    public void testStandard() {
+        String[] args = { "-tp", "80", "--layered-name", "x", "-m" };
+        LayeredResolver resolver = LayeredResolver.standard(args);
+
+        assertEquals(OptionsResolver.resolveInt(8080, "LAYERED_PORT", 'p',
+                args), resolver.resolveInt(8080, "LAYERED_PORT", 'p'));
+        assertEquals(true, resolver.resolveBoolean(false, "LAYERED_T", 't'));
+        assertEquals("x", resolver.resolve("y", "LAYERED-NAME", null));
+        assertEquals(8080L, resolver.resolveLong(8080, "LAYERED_NONE", 'n'));
+        assertEquals(1.5, resolver.resolveDouble(1.5, "LAYERED_NONE", 'n'),
+                0.0);
+        assertNull(resolver.resolve(String.class, null, "LAYERED_NONE", 'n'));
+
+        System.setProperty("LAYERED_PROP", "443");
+        try {
+            assertEquals(443, resolver.resolveInt(8080, "LAYERED_PROP", 'p'));
+        }
+        finally {
+            System.clearProperty("LAYERED_PROP");
+        }
+
+        try {
+            resolver.resolve("error", "LAYERED_MISSING", 'm');
+            fail("Expected MissingArgumentException for -m");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLayers() {
+        Map<String, String> tenant = new HashMap<>();
+        tenant.put("LAYERED_PORT", "9090");
+        tenant.put("LAYERED_HOST", "tenant");
+        OptionSource overrides = OptionSources.map(tenant);
+        tenant.put("LAYERED_HOST", "changed"); // copied
+
+        LayeredResolver resolver = LayeredResolver.standard("-p", "80");
+        resolver.add(0, overrides);
+        assertEquals(9090, resolver.resolveInt(8080, "LAYERED_PORT", 'p'));
+        assertEquals("tenant", resolver.resolve("host", "LAYERED_HOST", 'h'));
+
+        OptionSource reloaded = (key, flag, bool) -> "LAYERED_PORT"
+                .equals(key) ? "7070" : null;
+        assertTrue(resolver.replace(overrides, reloaded));
+        assertFalse(resolver.replace(overrides, reloaded));
+        assertEquals(7070, resolver.resolveInt(8080, "LAYERED_PORT", 'p'));
+        assertEquals("host", resolver.resolve("host", "LAYERED_HOST", 'h'));
+
+        assertTrue(resolver.remove(reloaded));
+        assertFalse(resolver.remove(reloaded));
+        assertEquals(80, resolver.resolveInt(8080, "LAYERED_PORT", 'p'));
+        assertEquals(Arrays.asList(OptionSources.env(),
+                OptionSources.properties()), resolver.sources().subList(0, 2));
+
+        resolver.add(resolver.sources().size(), OptionSources.map(tenant));
+        assertEquals("changed", resolver.resolve("host", "LAYERED_HOST", 'h'));
+
+        try {
+            resolver.add(0, null);
+            fail("Expected NullPointerException");
+        }
+        catch (NullPointerException e) {
+            // expected
+        }
+
+        try {
+            new LayeredResolver(OptionSources.map(tenant)).resolveInt(0,
+                    "LAYERED_HOST", 'h');
+            fail("Expected NotANumberException");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMetrics() {
+        Map<String, String> tenant = new HashMap<>();
+        tenant.put("LAYERED_PORT", "9090");
+        LayeredResolver resolver = new LayeredResolver(
+                OptionSources.map(tenant), OptionSources.args("-t"));
+
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+        try {
+            resolver.resolveInt(8080, "LAYERED_PORT", 'p');
+            resolver.resolveBoolean(false, "LAYERED_T", 't');
+            resolver.resolveInt(8080, "LAYERED_NONE", 'n');
+
+            assertEquals(1, ResolverMetrics.count(Origin.SOURCE));
+            assertEquals(1, ResolverMetrics.count(Origin.FLAG));
+            assertEquals(1, ResolverMetrics.count(Origin.DEFAULT));
+        }
+        finally {
+            ResolverMetrics.disable();
+            ResolverMetrics.reset();
+        }
+    }
+}
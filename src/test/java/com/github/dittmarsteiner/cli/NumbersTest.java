@@ -0,0 +1,123 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * @see Numbers
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class NumbersTest {
+
+    private static final String[] VALUES = { "", "-", "+", "0", "-0", "+1",
+            "42", " 42", "42 ", "4 2", "x", "2147483647", "2147483648",
+            "-2147483648", "-2147483649", "9223372036854775807",
+            "9223372036854775808", "-9223372036854775808",
+            "-9223372036854775809", "99999999999999999999", "١٢",
+            "1.5", ".5", "5.", ".", "-.5e3", "1e", "1e+", "1e-7", "1E7",
+            "1.5f", "1.5D", "1.5x", "1.5ff", " 1.5 ", "--1", "1-",
+            "NaN", "-Infinity", "0x1p3", "e5", "1..5" };
+
+    @Test
+    public void testIntegers() {
+        for (String value : VALUES) {
+            assertEquals(value, parses(() -> Integer.parseInt(value)),
+                    Numbers.isValid(Integer.class, value));
+            assertEquals(value, parses(() -> Long.parseLong(value)),
+                    Numbers.isValid(Long.class, value));
+        }
+    }
+
+    @Test
+    public void testDecimals() {
+        for (String value : VALUES) {
+            assertEquals(value, parses(() -> Double.parseDouble(value)),
+                    Numbers.isValid(Double.class, value));
+            assertEquals(value, parses(() -> Float.parseFloat(value)),
+                    Numbers.isValid(Float.class, value));
+        }
+
+        assertTrue(Numbers.isValid(Double.class, "NaNx")); // left to parser
+        assertTrue(Numbers.isValid(String.class, "x"));
+    }
+
+    @Test
+    public void testParse() {
+        for (String value : VALUES) {
+            String padded = "[" + value + "]";
+            int to = padded.length() - 1;
+
+            assertEquals(value, parses(() -> Long.parseLong(value.trim())),
+                    parses(() -> Numbers.parseLong(padded, 1, to,
+                            Long.MIN_VALUE, Long.MAX_VALUE)));
+            if (parses(() -> Long.parseLong(value.trim()))) {
+                assertEquals(Long.parseLong(value.trim()), Numbers.parseLong(
+                        padded, 1, to, Long.MIN_VALUE, Long.MAX_VALUE));
+            }
+
+            assertEquals(value, parses(() -> Double.parseDouble(value)),
+                    parses(() -> Numbers.parseDouble(padded, 1, to)));
+            if (parses(() -> Double.parseDouble(value))) {
+                assertEquals(value, Double.parseDouble(value), Numbers
+                        .parseDouble(padded, 1, to), 0.0);
+            }
+        }
+
+        // "%.0f", "%.0e" .. "%.16f", "%.16e"
+        String[] formats = new String[34];
+        for (int i = 0; i < formats.length; i++) {
+            formats[i] = "%." + i / 2 + (i % 2 == 0 ? "f" : "e");
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            // the root locale for a decimal point, not e.g. "0,5"
+            String value = random.nextInt(4) == 0 ? Long.toString(random
+                    .nextLong()) : String.format(Locale.ROOT, formats[random
+                    .nextInt(17) * 2 + (random.nextBoolean() ? 0 : 1)],
+                    (random.nextDouble() - 0.5) * Math.pow(10, random
+                            .nextInt(40) - 20));
+            assertEquals(value, Double.doubleToLongBits(Double
+                    .parseDouble(value)), Double.doubleToLongBits(Numbers
+                    .parseDouble(value, 0, value.length())));
+        }
+
+        assertEquals(Integer.MIN_VALUE, Numbers.parseLong("-2147483648", 0,
+                11, Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(-0.0, Numbers.parseDouble("-0", 0, 2), 0.0);
+        assertEquals(Double.NEGATIVE_INFINITY, Numbers.parseDouble(
+                "-Infinity", 0, 9), 0.0);
+    }
+
+    private static boolean parses(Runnable parser) {
+        try {
+            parser.run();
+            return true;
+        }
+        catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * @see OptionSchema
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class OptionSchemaTest {
+
+    private static final OptionSchema SCHEMA = OptionSchema.builder()
+            .option(8080, "SCHEMA_PORT", 'p')
+            .option(false, "SCHEMA_TEST", 't')
+            .option(0L, "SCHEMA_SIZE", 's')
+            .option(0d, "SCHEMA_RATIO", 'r')
+            .option(String.class, null, "SCHEMA_NAME", 'n')
+            .option(BigDecimal.ZERO, "SCHEMA_PRICE", null)
+            .build();
+
+    @Test
+    public void testResolve() {
+        ResolvedOptions options = SCHEMA.resolve("-tp", "80", "--schema_size",
+                "1000", "-n", "name", "--schema_price", "1.10");
+
+        assertEquals(80, options.getInt("SCHEMA_PORT"));
+        assertTrue(options.getBoolean("SCHEMA_TEST"));
+        assertEquals(1000L, options.getLong("SCHEMA_SIZE"));
+        assertEquals(0d, options.getDouble("SCHEMA_RATIO"), 0d); // default
+        assertEquals("name", options.getString("SCHEMA_NAME"));
+        assertEquals(new BigDecimal("1.10"), options.get("SCHEMA_PRICE"));
+        assertEquals(80, options.<Integer> get(
+                SCHEMA.indexOf("SCHEMA_PORT")).intValue());
+
+        options = SCHEMA.resolve();
+        assertEquals(8080, options.getInt("SCHEMA_PORT"));
+        assertFalse(options.getBoolean("SCHEMA_TEST"));
+        assertNull(options.getString("SCHEMA_NAME"));
+
+        System.setProperty("SCHEMA_RATIO", "0.5");
+        options = SCHEMA.resolve("-r", "1.5");
+        assertEquals(0.5d, options.getDouble("SCHEMA_RATIO"), 0d);
+        System.clearProperty("SCHEMA_RATIO");
+    }
+
+    @Test
+    public void testSameAsResolver() {
+        String[][] argss = { {}, { "-p", "80" }, { "-tp", "80" },
+                { "--schema_port", "443", "-p", "80" }, { "-t", "-ppp", "1" } };
+        for (String[] args : argss) {
+            ResolvedOptions options = SCHEMA.resolve(args);
+            assertEquals(OptionsResolver.resolve(8080, "SCHEMA_PORT", 'p', args),
+                    options.get("SCHEMA_PORT"));
+            assertEquals(OptionsResolver.resolve(false, "SCHEMA_TEST", 't', args),
+                    options.get("SCHEMA_TEST"));
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        try {
+            SCHEMA.resolve("-p", "http");
+            fail("Expected NotANumberException for -p http");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+
+        try {
+            SCHEMA.resolve("-n");
+            fail("Expected MissingArgumentException for -n");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+
+        try {
+            SCHEMA.resolve().get("NONE");
+            fail("Expected IllegalArgumentException for NONE");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            OptionSchema.builder().option(1, "A", 'a').option(2, "A", 'b');
+            fail("Expected IllegalArgumentException for duplicate A");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        try {
+            OptionSchema.builder().option(null, "A", 'a');
+            fail("Expected IllegalArgumentException for null default");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
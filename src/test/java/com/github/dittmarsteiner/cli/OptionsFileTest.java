@@ -0,0 +1,168 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+/**
+ * @see OptionsFile
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class OptionsFileTest {
+
+    private static final OptionSchema SCHEMA = OptionSchema.builder()
+            .option(8080, "FILE_PORT", 'p')
+            .option(false, "FILE_TEST", 't')
+            .option(0L, "FILE_SIZE", 's')
+            .option(0d, "FILE_RATIO", 'r')
+            .option(String.class, null, "FILE_NAME", 'n')
+            .option(BigDecimal.ZERO, "FILE_PRICE", null)
+            .build();
+
+    @Test
+    public void testReadWrite() throws IOException {
+        Path file = Files.createTempFile("options", ".bin");
+        try {
+            ParsedArgs args = ParsedArgs.parse("-tp", "80", "-s", "1000", "-r",
+                    "0.25", "-n", "n\u00e4me", "--file_price", "1.10");
+            assertEquals(80, OptionsFile.write(SCHEMA, file, args).getInt(
+                    "FILE_PORT"));
+
+            ResolvedOptions options = OptionsFile.map(SCHEMA, file, args);
+            assertNotNull(options);
+            assertEquals(80, options.getInt("FILE_PORT"));
+            assertTrue(options.getBoolean("FILE_TEST"));
+            assertEquals(1000L, options.getLong("FILE_SIZE"));
+            assertEquals(0.25d, options.getDouble("FILE_RATIO"), 0d);
+            assertEquals("n\u00e4me", options.getString("FILE_NAME"));
+            assertEquals(new BigDecimal("1.10"), options.get("FILE_PRICE"));
+            assertSame(options.get("FILE_NAME"), options.get("FILE_NAME"));
+
+            OptionsFile.write(SCHEMA, file); // replaced
+            options = OptionsFile.map(SCHEMA, file, ParsedArgs.parse());
+            assertEquals(8080, options.getInt("FILE_PORT"));
+            assertNull(options.getString("FILE_NAME"));
+
+            // readable like any other file
+            Path plain = Files.write(file.resolveSibling(file.getFileName()
+                    + ".plain"), new byte[0]);
+            try {
+                assertEquals(Files.getPosixFilePermissions(plain), Files
+                        .getPosixFilePermissions(file));
+            }
+            catch (UnsupportedOperationException e) {
+                // not POSIX
+            }
+            finally {
+                Files.delete(plain);
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testFingerprint() {
+        // Object.toString() differs in each JVM
+        assertEquals(OptionSchema.builder().option(new Object(), "FILE_OBJECT",
+                null).build().fingerprint(), OptionSchema.builder().option(
+                new Object(), "FILE_OBJECT", null).build().fingerprint());
+        assertNotEquals(SCHEMA.fingerprint(), OptionSchema.builder()
+                .option(8080, "FILE_PORT", 'p').build().fingerprint());
+        assertNotEquals(SCHEMA.inputs(ParsedArgs.parse("-p", "")), SCHEMA
+                .inputs(ParsedArgs.parse("-p")));
+    }
+
+    @Test
+    public void testFallback() throws IOException {
+        Path file = Files.createTempFile("options", ".bin");
+        try {
+            ParsedArgs args = ParsedArgs.parse("-p", "80");
+            OptionsFile.write(SCHEMA, file, args);
+            assertNotNull(OptionsFile.map(SCHEMA, file, args));
+
+            // other inputs
+            assertEquals(443, OptionsFile.read(SCHEMA, file, "-p", "443")
+                    .getInt("FILE_PORT"));
+            System.setProperty("FILE_SIZE", "1");
+            try {
+                assertNull(OptionsFile.map(SCHEMA, file, args));
+                assertEquals(1L, OptionsFile.read(SCHEMA, file, args).getLong(
+                        "FILE_SIZE"));
+            }
+            finally {
+                System.clearProperty("FILE_SIZE");
+            }
+
+            // another schema
+            OptionSchema other = OptionSchema.builder()
+                    .option(8080, "FILE_PORT", 'p').build();
+            assertNull(OptionsFile.map(other, file, args));
+            assertEquals(443, OptionsFile.read(other, file, "-p", "443")
+                    .getInt("FILE_PORT"));
+
+            // corrupt
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(),
+                    "rw")) {
+                raf.seek(raf.length() - 1);
+                int last = raf.read();
+                raf.seek(raf.length() - 1);
+                raf.write(last ^ 1);
+            }
+            assertNull(OptionsFile.map(SCHEMA, file, args));
+            assertEquals(80, OptionsFile.read(SCHEMA, file, args).getInt(
+                    "FILE_PORT"));
+
+            // truncated
+            Files.write(file, new byte[OptionsFile.HEADER - 1]);
+            assertNull(OptionsFile.map(SCHEMA, file, args));
+        }
+        finally {
+            Files.delete(file);
+        }
+
+        // missing
+        assertEquals(443, OptionsFile.read(SCHEMA, file, "-p", "443")
+                .getInt("FILE_PORT"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRoundTrip() throws IOException {
+        OptionSchema schema = OptionSchema.builder()
+                .option(StringBuilder.class, new StringBuilder("x"), "FILE_SB",
+                        null)
+                .build();
+        Path file = Files.createTempFile("options", ".bin");
+        try {
+            OptionsFile.write(schema, file);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -19,8 +19,19 @@
 package com.github.dittmarsteiner.cli;
 
 import static org.junit.Assert.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.junit.Test;
 
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+import com.github.dittmarsteiner.cli.OptionsResolver.StringConstructorException;
+
 /**
  * @see OptionsResolver
  * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
@@ -297,4 +308,437 @@ public class OptionsResolverTest {
             System.out.println("    No system env found: SYSENV");
         }
     }
+
+    @Test
+    public void testPrimitiveResolvers() {
+        int i = OptionsResolver.resolveInt(8080, "PORT", 'p', "-tp", "80");
+        assertEquals(80, i); // -p in -tp matched
+        i = OptionsResolver.resolveInt(8080, "PORT", 'p', "--port", "80");
+        assertEquals(80, i); // --port matched
+        i = OptionsResolver.resolveInt(8080, "PORT", 'p', "-t");
+        assertEquals(8080, i); // no matches, so default value
+
+        long l = OptionsResolver.resolveLong(0L, "PRIM_ARG", 'a', "-a", "1000");
+        assertEquals(1000L, l);
+
+        double d = OptionsResolver.resolveDouble(0d, "PRIM_ARG", 'a', "-a", "1.1");
+        assertEquals(1.1d, d, 0d);
+
+        boolean b = OptionsResolver.resolveBoolean(false, "PRIM_ARG", 'a', "-ab");
+        assertTrue(b); // -a in -ab
+        b = OptionsResolver.resolveBoolean(false, "PRIM_ARG", 'a', "--prim_arg");
+        assertTrue(b); // --prim_arg was present
+        b = OptionsResolver.resolveBoolean(true, "PRIM_ARG", 'a', "-b");
+        assertTrue(b); // no matches, so default value
+
+        System.setProperty("PRIMITIVE", "443");
+        i = OptionsResolver.resolveInt(8080, "PRIMITIVE", 'p', "-p", "80");
+        assertEquals(443, i); // System property wins
+
+        System.setProperty("PRIMITIVE", "false");
+        b = OptionsResolver.resolveBoolean(true, "PRIMITIVE", 'p', "-p");
+        assertFalse(b); // System property wins
+
+        try {
+            OptionsResolver.resolveInt(8080, "PORT", 'p', "-p", "http");
+            fail("Expected NotANumberException for -p http");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+
+        try {
+            OptionsResolver.resolveLong(0L, "MISSING", 'm', "--missing");
+            fail("Expected MissingArgumentException for --missing");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTypedResolvers() {
+        ParsedArgs args = ParsedArgs.parse("-tn", "name", "--typed_uri",
+                "http://localhost");
+
+        String s = OptionsResolver.resolve(String.class, null, "TYPED_NAME",
+                'n', args);
+        assertEquals("name", s); // -n in -tn, although default was null
+        s = OptionsResolver.resolve(String.class, null, "TYPED_NONE", 'x', args);
+        assertNull(s); // no matches, so default value
+
+        Boolean b = OptionsResolver.resolve(Boolean.class, null, "TYPED_TEST",
+                't', args);
+        assertEquals(true, b); // -t in -tn
+
+        java.net.URI uri = OptionsResolver.resolve(java.net.URI::create, null,
+                "TYPED_URI", 'u', args);
+        assertEquals(java.net.URI.create("http://localhost"), uri);
+
+        try {
+            OptionsResolver.resolve(Integer::valueOf, 0, "TYPED_NAME", 'n',
+                    args);
+            fail("Expected NotANumberException for -n name");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTryResolve() {
+        ParsedArgs args = ParsedArgs.parse("-tp", "eighty", "--try_host",
+                "localhost", "--try_ratio", "1.5", "--try_big",
+                "99999999999", "-m");
+
+        Result<Boolean> test = OptionsResolver.tryResolve(false, "TRY_TEST",
+                't', args);
+        assertTrue(test.isOk());
+        assertEquals(true, test.get());
+        assertNull(test.error());
+        assertNull(test.message());
+
+        assertEquals(1.5, OptionsResolver.tryResolve(0.0, "TRY_RATIO", 'r',
+                args).get(), 0.0);
+        assertEquals(80, OptionsResolver.tryResolve(80, "TRY_NONE", 'n', args)
+                .get().intValue());
+        assertEquals(99999999999L, OptionsResolver.tryResolve(0L, "TRY_BIG",
+                'b', args).get().longValue());
+        assertNull(OptionsResolver.tryResolve(null, "TRY_HOST", 'h', args)
+                .get());
+
+        Result<Integer> port = OptionsResolver.tryResolve(8080, "TRY_PORT",
+                'p', args);
+        assertFalse(port.isOk());
+        assertEquals(Result.ErrorCode.NOT_A_NUMBER, port.error());
+        assertEquals("TRY_PORT", port.key());
+        assertEquals('p', port.flag().charValue());
+        assertEquals("Argument is not a number for --TRY_PORT resp. -p",
+                port.message());
+        assertEquals(443, port.orElse(443).intValue());
+        try {
+            port.get();
+            fail("Expected NotANumberException");
+        }
+        catch (NotANumberException e) {
+            assertEquals(port.message(), e.getMessage());
+        }
+
+        assertEquals(Result.ErrorCode.NOT_A_NUMBER, OptionsResolver
+                .tryResolve(0, "TRY_BIG", 'b', args).error()); // overflow
+
+        Result<String> missing = OptionsResolver.tryResolve("", "TRY_MISSING",
+                'm', args);
+        assertEquals(Result.ErrorCode.MISSING_ARGUMENT, missing.error());
+        assertTrue(missing.exception() instanceof MissingArgumentException);
+
+        Result<Object> object = OptionsResolver.tryResolve(Object.class, null,
+                "TRY_HOST", 'h', args);
+        assertEquals(Result.ErrorCode.STRING_CONSTRUCTOR, object.error());
+        assertTrue(object.message().startsWith(
+                "Could not use 'new java.lang.Object(\"localhost\")'"));
+
+        // failures of registered converters
+        Converters.register(Duration.class, Duration::parse);
+        Result<Duration> timeout = OptionsResolver.tryResolve(Duration.ZERO,
+                "TRY_TIMEOUT", 't', "-t", "soon");
+        assertEquals(Result.ErrorCode.STRING_CONSTRUCTOR, timeout.error());
+
+        Converter<Integer> valueOf = Converters.forType(Integer.class);
+        Converters.register(Integer.class, Integer::decode);
+        try {
+            assertEquals(16, OptionsResolver.tryResolve(0, "TRY_HEX", 'x',
+                    "-x", "0x10").get().intValue());
+            assertEquals(Result.ErrorCode.NOT_A_NUMBER, OptionsResolver
+                    .tryResolve(0, "TRY_HEX", 'x', "-x", "0xg").error());
+        }
+        finally {
+            Converters.register(Integer.class, valueOf);
+        }
+
+        // counted once, also if thrown later
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+        try {
+            OptionsResolver.tryResolve(Object.class, null, "TRY_HOST", 'h',
+                    args).exception();
+            assertEquals(1L, ResolverMetrics.failureCounts().get(
+                    StringConstructorException.class).longValue());
+
+            OptionsResolver.tryResolve("", "TRY_MISSING", 'm', args)
+                    .exception();
+            try {
+                OptionsResolver.tryResolve(0, "TRY_PORT", 'p', args).get();
+                fail("Expected NotANumberException");
+            }
+            catch (NotANumberException e) {
+                // expected
+            }
+            assertEquals(1L, ResolverMetrics.failureCounts().get(
+                    MissingArgumentException.class).longValue());
+            assertEquals(1L, ResolverMetrics.failureCounts().get(
+                    NotANumberException.class).longValue());
+        }
+        finally {
+            ResolverMetrics.disable();
+            ResolverMetrics.reset();
+        }
+    }
+
+    @Test
+    public void testStackTraces() {
+        OptionsResolver.disableStackTraces();
+        try {
+            try {
+                OptionsResolver.resolve(8080, "STACK_PORT", 'p', "-p", "x");
+                fail("Expected NotANumberException");
+            }
+            catch (NotANumberException e) {
+                assertEquals(0, e.getStackTrace().length);
+                assertEquals(0, e.getCause().getStackTrace().length);
+            }
+
+            try {
+                OptionsResolver.resolveInts("STACK_PORTS", 'p', ',', "-p",
+                        "1,x");
+                fail("Expected NotANumberException");
+            }
+            catch (NotANumberException e) {
+                assertEquals(0, e.getCause().getStackTrace().length);
+            }
+
+            try {
+                OptionsResolver.resolve(8080, "STACK_PORT", 'p', "-p");
+                fail("Expected MissingArgumentException");
+            }
+            catch (MissingArgumentException e) {
+                assertEquals(0, e.getStackTrace().length);
+                assertEquals(0, e.getCause().getStackTrace().length);
+            }
+        }
+        finally {
+            OptionsResolver.enableStackTraces();
+        }
+
+        try {
+            OptionsResolver.resolve(8080, "STACK_PORT", 'p', "-p", "x");
+            fail("Expected NotANumberException");
+        }
+        catch (NotANumberException e) {
+            assertTrue(e.getStackTrace().length > 0);
+            assertTrue(e.getCause().getStackTrace().length > 0);
+        }
+    }
+
+    @Test
+    public void testMultiValues() {
+        ParsedArgs args = ParsedArgs.parse("-i", "a", "--multi_input", "b",
+                "-xi", "c", "--multi_ports", "80, 443", "-p", "8080",
+                "--multi_ratios", "0.5,1e3,-2", "--multi_input", "d");
+
+        assertEquals(java.util.Arrays.asList("a", "b", "c", "d"),
+                OptionsResolver.resolveAll("MULTI_INPUT", 'i', args));
+        assertEquals(java.util.Collections.emptyList(), OptionsResolver
+                .resolveAll("MULTI_NONE", 'n', args));
+        assertArrayEquals(new int[] { 80, 443, 8080 }, OptionsResolver
+                .resolveInts("MULTI_PORTS", 'p', ',', args));
+        assertArrayEquals(new long[] { 80, 443, 8080 }, OptionsResolver
+                .resolveLongs("MULTI_PORTS", 'p', ',', args));
+        assertArrayEquals(new double[] { 0.5, 1000, -2 }, OptionsResolver
+                .resolveDoubles("MULTI_RATIOS", 'r', ',', args), 0.0);
+        assertEquals(0, OptionsResolver.resolveInts("MULTI_NONE", 'n', ',',
+                args).length);
+        assertEquals(java.util.Arrays.asList(80, 443, 8080), OptionsResolver
+                .resolveList(Integer.class, "MULTI_PORTS", 'p', ',', args));
+        assertEquals(java.util.Arrays.asList("80", "443"), OptionsResolver
+                .resolveList(String.class, "MULTI_PORTS", null, ',', args));
+
+        System.setProperty("MULTI_PORTS", "1:2");
+        try {
+            assertArrayEquals(new int[] { 1, 2, 80, 443, 8080 },
+                    OptionsResolver.resolveInts("MULTI_PORTS", 'p', ':',
+                            "-p", "80:443", "--multi_ports", "8080"));
+        }
+        finally {
+            System.clearProperty("MULTI_PORTS");
+        }
+
+        for (String ports : new String[] { "80,", "80,x", ",80", "1,2147483648" }) {
+            try {
+                OptionsResolver.resolveInts("MULTI_PORTS", 'p', ',', "-p",
+                        ports);
+                fail("Expected NotANumberException for " + ports);
+            }
+            catch (NotANumberException e) {
+                // expected
+            }
+        }
+
+        try {
+            OptionsResolver.resolveAll("MULTI_INPUT", 'i', "-i", "a", "-i");
+            fail("Expected MissingArgumentException for the last -i");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testPrefix() {
+        System.setProperty("app.db.host", "localhost");
+        System.setProperty("app.db.port", "5432");
+        System.setProperty("app.db.max-pool-size", "8");
+        try {
+            java.util.Map<String, String> db = OptionsResolver
+                    .resolvePrefix("app.db.");
+            assertEquals(3, db.size());
+            assertEquals("localhost", db.get("host"));
+
+            assertEquals(5432, OptionsResolver.resolvePrefix(Long.class,
+                    "app.db.p").get("ort").intValue());
+
+            EnvironmentSnapshot.enable(); // same with an index
+            DbConfig config = OptionsResolver.bindPrefix(new DbConfig(),
+                    "app.db.");
+            assertEquals("localhost", config.host);
+            assertEquals(5432, config.port);
+            assertEquals(8, config.maxPoolSize);
+            assertEquals("none", config.user); // not set
+
+            try {
+                OptionsResolver.resolvePrefix(Integer.class, "app.db.");
+                fail("Expected NotANumberException for app.db.host");
+            }
+            catch (NotANumberException e) {
+                // expected
+            }
+        }
+        finally {
+            EnvironmentSnapshot.disable();
+            System.clearProperty("app.db.host");
+            System.clearProperty("app.db.port");
+            System.clearProperty("app.db.max-pool-size");
+        }
+    }
+
+    @Test
+    public void testPrefixMetrics() {
+        String key = System.getenv().keySet().iterator().next();
+        System.setProperty(key, "overridden");
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+        try {
+            for (int i = 0; i < 2; i++) {
+                assertEquals(System.getenv(key), OptionsResolver
+                        .resolvePrefix(key).get(""));
+                // only the env value, which wins
+                assertEquals(i + 1, ResolverMetrics.keyCounts().get(key)
+                        .longValue());
+
+                EnvironmentSnapshot.enable(); // same with an index
+            }
+        }
+        finally {
+            EnvironmentSnapshot.disable();
+            ResolverMetrics.disable();
+            ResolverMetrics.reset();
+            System.clearProperty(key);
+        }
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        final int rounds = 20000;
+
+        final AtomicBoolean running = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            final int id = i;
+            Runnable reader = () -> {
+                // each thread its own args, parse() caches only the last
+                String[] args = { "--threads_id", "" + id, "-n", "t" + id };
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        assertEquals(id, OptionsResolver.resolveInt(-1,
+                                "THREADS_ID", null, args));
+                        assertEquals("t" + id, OptionsResolver.resolve("",
+                                "THREADS_NAME", 'n', args));
+                        // converted by the shared ConversionCache
+                        int value = OptionsResolver.resolve(0,
+                                "THREADS_VALUE", null, args);
+                        if (value != 1 && value != 22) {
+                            fail("Unexpected value " + value);
+                        }
+                    }
+                }
+                catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            };
+            Thread thread = i % 2 == 1 ? virtualThread(reader) : null;
+            readers.add(thread != null ? thread : new Thread(reader));
+        }
+        Thread writer = new Thread(() -> {
+            for (boolean flip = false; running.get(); flip = !flip) {
+                System.setProperty("THREADS_VALUE", flip ? "1" : "22");
+            }
+        });
+
+        System.setProperty("THREADS_VALUE", "1");
+        Converters.cache(Integer.class, 16);
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+        try {
+            writer.start();
+            for (Thread reader : readers) {
+                reader.start();
+            }
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            running.set(false);
+            writer.join();
+
+            if (failure.get() != null) {
+                throw new AssertionError(failure.get());
+            }
+            // no lost updates
+            long resolved = (long) readers.size() * rounds;
+            assertEquals(resolved, ResolverMetrics.count(Origin.NAMED));
+            assertEquals(resolved, ResolverMetrics.count(Origin.FLAG));
+            assertEquals(resolved, ResolverMetrics.count(Origin.PROPERTY));
+            assertEquals(resolved, ResolverMetrics.keyCounts().get(
+                    "THREADS_ID").longValue());
+        }
+        finally {
+            running.set(false);
+            ResolverMetrics.disable();
+            ResolverMetrics.reset();
+            Converters.uncache(Integer.class);
+            System.clearProperty("THREADS_VALUE");
+        }
+    }
+
+    /**
+     * @return an unstarted virtual thread, <code>null</code> before Java 21
+     */
+    static Thread virtualThread(Runnable task) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (Thread) Class.forName("java.lang.Thread$Builder")
+                    .getMethod("unstarted", Runnable.class).invoke(builder,
+                            task);
+        }
+        catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    static class DbConfig {
+        String host;
+        int port;
+        int maxPoolSize;
+        String user = "none";
+    }
 }
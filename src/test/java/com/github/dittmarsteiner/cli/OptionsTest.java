@@ -0,0 +1,111 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * @see Options
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class OptionsTest {
+
+    @Test
+    public void testLazy() {
+        Option<Integer> port = Options.lazy(8080, "LAZY_PORT", 'p');
+        assertEquals("LAZY_PORT", port.key());
+        assertEquals(Character.valueOf('p'), port.flag());
+
+        System.setProperty("LAZY_PORT", "80");
+        assertEquals(80, port.get().intValue()); // resolved now
+        System.setProperty("LAZY_PORT", "443");
+        assertEquals(80, port.get().intValue()); // memoized
+        System.clearProperty("LAZY_PORT");
+
+        Option<Boolean> test = Options.lazy(false, "LAZY_TEST", 't', "-tp",
+                "80");
+        assertTrue(test.get());
+
+        Option<Integer> nan = Options.lazy(8080, "LAZY_NAN", 'n', "-n", "x");
+        for (int i = 0; i < 2; i++) {
+            try {
+                nan.get();
+                fail("Expected NotANumberException for -n x");
+            }
+            catch (NotANumberException e) {
+                // expected, every time
+            }
+        }
+    }
+
+    @Test
+    public void testSupplier() {
+        AtomicInteger calls = new AtomicInteger();
+        Option<Integer> found = Options.lazy(Integer.class,
+                calls::incrementAndGet, "LAZY_FOUND", 'f', "-f", "80");
+        assertEquals(80, found.get().intValue());
+        assertEquals(0, calls.get()); // default not computed
+
+        Option<Integer> missing = Options.lazy(Integer.class,
+                calls::incrementAndGet, "LAZY_MISSING", 'm', "-f", "80");
+        assertEquals(1, missing.get().intValue());
+        assertEquals(1, missing.get().intValue());
+        assertEquals(1, calls.get()); // computed once
+
+        Option<Boolean> flag = Options.lazy(Boolean.class, () -> false,
+                "LAZY_FLAG", 'f', "-f");
+        assertTrue(flag.get());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Option<Integer> option = Options.lazy(Integer.class,
+                calls::incrementAndGet, "LAZY_CONCURRENT", 'c');
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                tasks.add(option::get);
+            }
+
+            List<Future<Integer>> futures = executor.invokeAll(tasks);
+            Integer value = option.get();
+            for (Future<Integer> future : futures) {
+                assertSame(value, future.get()); // the published one
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.MissingArgumentException;
+
+/**
+ * @see ParsedArgs
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class ParsedArgsTest {
+
+    @Test
+    public void testIndex() {
+        ParsedArgs args = ParsedArgs.parse("-tp", "80", "--name", "x",
+                "--name", "y", "-", "---z");
+        assertEquals(8, args.size());
+        assertEquals("80", args.get(1));
+
+        assertEquals(2, args.indexOfName("--name")); // first one wins
+        assertEquals(-1, args.indexOfName("--z")); // ---z is no name
+        assertEquals(-1, args.indexOfName("--x"));
+
+        assertEquals(0, args.indexOfFlag('t', true)); // -t in -tp
+        assertEquals(-1, args.indexOfFlag('t', false)); // -t takes no value
+        assertEquals(0, args.indexOfFlag('p', false)); // -p 80
+        assertEquals(-1, args.indexOfFlag('z', true)); // ---z is no flag
+
+        assertEquals(0, ParsedArgs.parse().size());
+        assertEquals(0, ParsedArgs.parse((String[]) null).size());
+    }
+
+    @Test
+    public void testResolve() {
+        ParsedArgs args = ParsedArgs.parse("-ab", "bbb", "--xxx", "xxx",
+                "-p", "80", "-m");
+
+        assertEquals(true, OptionsResolver.resolve(false, "ARG", 'a', args));
+        assertEquals("bbb", OptionsResolver.resolve("error", "BBB", 'b', args));
+        assertEquals("xxx", OptionsResolver.resolve("error", "xxx", 'x', args));
+        assertEquals(80, OptionsResolver.resolve(8080, "PORT", 'p', args)
+                .intValue());
+        assertEquals(8080, OptionsResolver.resolve(8080, "NONE", 'n', args)
+                .intValue());
+
+        try {
+            OptionsResolver.resolve("error", "MISSING", 'm', args);
+            fail("Expected MissingArgumentException for -m");
+        }
+        catch (MissingArgumentException e) {
+            // expected
+        }
+
+        // the parsed arguments are a copy
+        String[] raw = { "-p", "80" };
+        args = ParsedArgs.parse(raw);
+        raw[1] = "443";
+        assertEquals(80, OptionsResolver.resolve(8080, "PORT", 'p', args)
+                .intValue());
+    }
+
+    @Test
+    public void testFlags() {
+        ParsedArgs args = ParsedArgs.parse("-a\u00e4", "1", "-\u00e4b", "2",
+                "-\u00f6", "3", "-~", "-", "-\u007f9");
+
+        assertEquals(0, args.indexOfFlag('a', true));
+        assertEquals(-1, args.indexOfFlag('a', false));
+        assertEquals(0, args.indexOfFlag('\u00e4', true)); // first in -a\u00e4
+        assertEquals(0, args.indexOfFlag('\u00e4', false));
+        assertEquals(2, args.indexOfFlag('b', false));
+        assertEquals(4, args.indexOfFlag('\u00f6', false));
+        assertEquals(8, args.indexOfFlag('9', false));
+        assertEquals(-1, args.indexOfFlag('\u00fc', true));
+        assertEquals(-1, args.indexOfFlag('c', true));
+
+        assertEquals(3, OptionsResolver.resolveInt(0, null, '\u00f6', args));
+        assertEquals(1, OptionsResolver.resolveInt(0, null, '\u00e4', args));
+    }
+
+    @Test
+    public void testSameArgs() {
+        String[] raw = { "-p", "80" };
+        ParsedArgs args = ParsedArgs.parse(raw);
+        assertSame(args, ParsedArgs.parse(raw)); // same Strings
+        assertSame(args, ParsedArgs.parse("-p", "80")); // same literals
+
+        raw[1] = new String("80");
+        assertNotSame(args, ParsedArgs.parse(raw)); // other String
+        raw[1] = "443";
+        assertEquals(443, OptionsResolver.resolveInt(0, null, 'p', raw));
+    }
+
+    @Test
+    public void testSameArgsPerThread() throws InterruptedException {
+        String[] raw = { "-p", "80" };
+        ParsedArgs args = ParsedArgs.parse(raw);
+
+        // another thread with other arguments does not evict these
+        ParsedArgs[] other = new ParsedArgs[2];
+        Thread thread = new Thread(() -> {
+            other[0] = ParsedArgs.parse("-p", "443");
+            other[1] = ParsedArgs.parse(raw);
+        });
+        thread.start();
+        thread.join();
+
+        assertNotSame(args, other[1]); // parsed by its thread again
+        assertSame(args, ParsedArgs.parse(raw));
+    }
+
+    @Test
+    public void testExpand() throws IOException {
+        Path file = Files.createTempFile("args", ".txt");
+        try {
+            StringBuilder text = new StringBuilder();
+            text.append("# shards\n--name \"a b\" -p 80 '' 'x\\'y\\t\\n' #c\n");
+            for (int i = 0; i < 20000; i++) {
+                text.append("shard-\u00e4").append(i).append(i % 8 == 0 ? '\n'
+                        : ' ');
+            }
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+
+            ParsedArgs args = ParsedArgs.expand("-t", "@" + file, "--last",
+                    "z", "@");
+            assertEquals(20010, args.size());
+            assertEquals("a b", args.get(2));
+            assertEquals("", args.get(5));
+            assertEquals("x'y\t\n", args.get(6));
+            assertEquals("shard-\u00e40", args.get(7)); // no #c
+            assertEquals("shard-\u00e419999", args.get(20006));
+            assertEquals("@", args.get(20009));
+
+            assertEquals(true, OptionsResolver.resolve(false, "TEST", 't',
+                    args));
+            assertEquals("a b", OptionsResolver.resolve("", "NAME", 'n',
+                    args));
+            assertEquals(80, OptionsResolver.resolveInt(0, null, 'p', args));
+            assertEquals("z", OptionsResolver.resolve("", "LAST", 'l', args));
+
+            try {
+                args.get(20010);
+                fail("Expected ArrayIndexOutOfBoundsException");
+            }
+            catch (ArrayIndexOutOfBoundsException e) {
+                // expected
+            }
+
+            Files.write(file, "--name \"open".getBytes(StandardCharsets.UTF_8));
+            try {
+                ParsedArgs.expand("@" + file);
+                fail("Expected IOException for the open quote");
+            }
+            catch (IOException e) {
+                // expected
+            }
+        }
+        finally {
+            Files.delete(file);
+        }
+
+        assertEquals(0, ParsedArgs.expand().size());
+    }
+}
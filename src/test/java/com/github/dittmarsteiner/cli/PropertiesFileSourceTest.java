@@ -0,0 +1,180 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @see PropertiesFileSource
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class PropertiesFileSourceTest {
+
+    private Path dir;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("options");
+        file = dir.resolve("test.properties");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(dir.resolve("test.tmp"));
+        Files.deleteIfExists(file);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testParse() throws IOException {
+        write("# comment\n",
+                "! comment\n",
+                "\n",
+                "   PORT = 80\r\n",
+                "HOST:localhost\n",
+                "NAME value with spaces  \n",
+                "EMPTY\n",
+                "SPLIT = a\\\n",
+                "        b\n",
+                "CRLF = c\\\r\n",
+                "  d\n",
+                "ESC\\ KEY = \\t\\u00e4\\uD83D\\uDE00\\\\\n",
+                "UTF8 = ü€\n",
+                "PORT = 8080");
+
+        try (PropertiesFileSource source = PropertiesFileSource.load(file)) {
+            assertEquals(8, source.size());
+            assertEquals("8080", source.lookup("PORT", 'p', false)); // last
+            assertEquals("localhost", source.lookup("HOST", null, false));
+            assertEquals("value with spaces  ", source.lookup("NAME", null,
+                    false));
+            assertEquals("", source.lookup("EMPTY", null, false));
+            assertEquals("ab", source.lookup("SPLIT", null, false));
+            assertEquals("cd", source.lookup("CRLF", null, false));
+            assertEquals("\tä😀\\", source.lookup("ESC KEY",
+                    null, false));
+            assertEquals("ü€", source.lookup("UTF8", null, false));
+            assertNull(source.lookup("NONE", 'n', false));
+            assertNull(source.lookup(null, 'n', false));
+        }
+
+        // the same from a heap buffer, as on Windows
+        StringTable table = PropertiesFileSource.read(file, false);
+        assertEquals(8, table.size());
+        assertEquals("cd", table.get("CRLF"));
+        assertEquals("8080", table.get("PORT"));
+        assertEquals("ab", table.get("SPLIT"));
+        assertEquals("\tä😀\\", table.get("ESC KEY"));
+        assertEquals("ü€", table.get("UTF8"));
+
+        write("BAD = \\u00g0");
+        try {
+            PropertiesFileSource.load(file);
+            fail("Expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        Files.delete(file);
+        try {
+            PropertiesFileSource.load(file);
+            fail("Expected NoSuchFileException");
+        }
+        catch (NoSuchFileException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testReload() throws IOException {
+        write("PORT = 80\n");
+        try (PropertiesFileSource source = PropertiesFileSource.load(file)) {
+            LayeredResolver resolver = LayeredResolver.standard("-p", "443");
+            resolver.add(0, source);
+            assertEquals(443, resolver.resolveInt(8080, "FILE_NONE", 'p'));
+            assertEquals(80, resolver.resolveInt(8080, "PORT", 'p'));
+
+            write("PORT = 81\n");
+            assertEquals(80, resolver.resolveInt(8080, "PORT", 'p'));
+            source.reload();
+            assertEquals(81, resolver.resolveInt(8080, "PORT", 'p'));
+
+            Files.delete(file);
+            try {
+                source.reload();
+                fail("Expected NoSuchFileException");
+            }
+            catch (NoSuchFileException e) {
+                // expected
+            }
+            assertEquals(81, resolver.resolveInt(8080, "PORT", 'p'));
+        }
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        write("PORT = 80\n");
+        try (PropertiesFileSource source = PropertiesFileSource.watch(file)) {
+            assertEquals("80", source.lookup("PORT", 'p', false));
+
+            write("PORT = 81\n");
+            awaitPort(source, "81");
+
+            // replaced, like most editors do
+            Path tmp = dir.resolve("test.tmp");
+            Files.write(tmp, "PORT = 82\n".getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            awaitPort(source, "82");
+        }
+    }
+
+    private void awaitPort(PropertiesFileSource source, String expected)
+            throws InterruptedException {
+        // polling WatchServices (e.g. macOS) may take several seconds
+        long timeout = System.currentTimeMillis() + 30000;
+        while (!expected.equals(source.lookup("PORT", 'p', false))) {
+            if (System.currentTimeMillis() > timeout) {
+                fail("Not reloaded: " + expected);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private void write(String... lines) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line);
+        }
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * ------------------------------------------------------------------------------
+ * ISC License http://opensource.org/licenses/isc-license.txt
+ * ------------------------------------------------------------------------------
+ * Copyright (c) 2016, Dittmar Steiner <dittmar.steiner@gmail.com>
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR
+ * ANY SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF
+ * OR IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+package com.github.dittmarsteiner.cli;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.dittmarsteiner.cli.OptionsResolver.NotANumberException;
+
+/**
+ * @see ResolverMetrics
+ * @author <a href="mailto:dittmar.steiner@gmail.com">Dittmar Steiner</a>
+ */
+public class ResolverMetricsTest {
+
+    @Before
+    public void enable() {
+        ResolverMetrics.reset();
+        ResolverMetrics.enable();
+    }
+
+    @After
+    public void disable() {
+        ResolverMetrics.disable();
+        ResolverMetrics.reset();
+    }
+
+    @Test
+    public void testCounts() {
+        System.setProperty("METRICS_PROPERTY", "1");
+        ParsedArgs args = ParsedArgs.parse("--metrics_named", "2", "-f", "3");
+
+        OptionsResolver.resolve(0, "METRICS_PROPERTY", 'p', args);
+        OptionsResolver.resolveInt(0, "METRICS_NAMED", 'n', args);
+        OptionsResolver.resolveLong(0L, "METRICS_FLAG", 'f', args);
+        OptionsResolver.resolve(0d, "METRICS_DEFAULT", 'd', args);
+        OptionsResolver.resolve(0d, null, 'd', args);
+        System.clearProperty("METRICS_PROPERTY");
+
+        assertEquals(1, ResolverMetrics.count(Origin.PROPERTY));
+        assertEquals(1, ResolverMetrics.count(Origin.NAMED));
+        assertEquals(1, ResolverMetrics.count(Origin.FLAG));
+        assertEquals(2, ResolverMetrics.count(Origin.DEFAULT));
+        assertEquals(Long.valueOf(1), ResolverMetrics.keyCounts().get(
+                "METRICS_NAMED"));
+        assertEquals(Long.valueOf(1), ResolverMetrics.keyCounts().get("-d"));
+
+        long conversions = 0;
+        for (long count : ResolverMetrics.conversionHistogram()) {
+            conversions += count;
+        }
+        assertEquals(3, conversions); // defaults are not converted
+
+        ResolverMetrics.disable();
+        OptionsResolver.resolve(0d, "METRICS_DEFAULT", 'd', args);
+        assertEquals(2, ResolverMetrics.count(Origin.DEFAULT)); // not counted
+    }
+
+    @Test
+    public void testFailures() {
+        try {
+            OptionsResolver.resolveInt(0, "METRICS_NAN", 'n', "-n", "x");
+            fail("Expected NotANumberException for -n x");
+        }
+        catch (NotANumberException e) {
+            // expected
+        }
+
+        assertEquals(Long.valueOf(1), ResolverMetrics.failureCounts().get(
+                NotANumberException.class));
+    }
+}